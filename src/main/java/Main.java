@@ -5,17 +5,33 @@ import plugin.LibraryManager;
 import plugin.PluginManager;
 import ui.MainFrame;
 
+import java.lang.management.ManagementFactory;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Starts the application in stages: the window is built and shown first,
+ * while plugins load in parallel; Discord and the user data follow in the
+ * background once the window is up.
+ */
 public class Main {
 
     private static final Logger logger = LogManager.getLogger(Main.class);
 
+    /** Runs the startup stages that happen behind the visible window. */
+    private static final ExecutorService startup = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "startup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     // Plugin system instances
-    private static PluginManager pluginManager;
-    private static LibraryManager libraryManager;
+    private static volatile PluginManager pluginManager;
+    private static volatile LibraryManager libraryManager;
 
     public static void main(String[] args) {
         // Ensure logs directory exists for Log4j (cross-platform compatibility)
@@ -29,15 +45,25 @@ public class Main {
             System.err.println("Warning: Could not create logs directory: " + e.getMessage());
         }
 
-        // Initialize plugin system
-        initializePlugins();
+        logger.info("Starting Shiori manga reader application");
 
+        // Load plugins while the window is being built
+        CompletableFuture<Void> plugins = CompletableFuture.runAsync(Main::initializePlugins, startup);
 
-        logger.info("Starting Shiori manga reader application");
         SwingUtilities.invokeLater(() -> {
             try {
-                new MainFrame(pluginManager, libraryManager).setVisible(true);
-                logger.info("ui.MainFrame initialized and displayed");
+                MainFrame frame = new MainFrame();
+                frame.setVisible(true);
+                logger.info("ui.MainFrame displayed {} ms after JVM start",
+                        ManagementFactory.getRuntimeMXBean().getUptime());
+
+                frame.finishStartup(startup);
+                plugins.whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        logger.error("Plugin system failed to start", error);
+                    }
+                    SwingUtilities.invokeLater(() -> frame.pluginsLoaded(pluginManager, libraryManager));
+                });
             } catch (Exception e) {
                 logger.error("Failed to initialize ui.MainFrame", e);
             }
@@ -48,6 +74,7 @@ public class Main {
      * Initialize the plugin system.
      */
     private static void initializePlugins() {
+        long start = System.currentTimeMillis();
         try {
             logger.info("Initializing plugin system...");
 
@@ -63,7 +90,8 @@ public class Main {
 
             if (success) {
                 logger.info("Plugin system initialized successfully");
-                logger.info("Loaded {} plugin(s)", pluginManager.getPluginCount());
+                logger.info("Loaded {} plugin(s) in {} ms",
+                        pluginManager.getPluginCount(), System.currentTimeMillis() - start);
             } else {
                 logger.warn("Plugin system initialization had issues, continuing without plugins");
             }
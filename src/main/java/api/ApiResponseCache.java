@@ -0,0 +1,269 @@
+package api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cache for MangaDex API responses, kept in memory and on disk.
+ * <p>
+ * Every endpoint has its own time to live. Fresh entries are served without
+ * touching the network. Expired entries are still served right away while a
+ * background refresh revalidates them with {@code If-None-Match} or
+ * {@code If-Modified-Since}, so a 304 costs no body transfer. Only entries
+ * that are missing or stale for longer than {@link #MAX_STALE} are fetched on
+ * the caller's thread.
+ * <p>
+ * Every URL gets its own file on disk, so files that can no longer be served
+ * are swept away in the background whenever a cache is opened.
+ */
+public class ApiResponseCache {
+    private static final Logger logger = LogManager.getLogger(ApiResponseCache.class);
+
+    /** How long past its TTL an entry may still be served while it is refreshed. */
+    static final Duration MAX_STALE = Duration.ofDays(7);
+    /** The longest time to live handed out by {@link #ttlFor(String)}. */
+    private static final Duration MAX_TTL = Duration.ofHours(24);
+    private static final int MEMORY_ENTRIES = 256;
+
+    private static final ApiResponseCache shared = new ApiResponseCache(Paths.get(
+            System.getProperty("user.home"),
+            ".yomikomu",
+            "api-cache"
+    ));
+
+    /** A cached response body and the validators needed to revalidate it. */
+    public record Entry(String url, byte[] body, String etag, String lastModified, long fetchedAt) {
+    }
+
+    /** What the server answered. A 304 carries no body. */
+    public record Response(int status, byte[] body, String etag, String lastModified) {
+    }
+
+    /**
+     * Performs the actual request, sending the validators of {@code cached} if it is not null.
+     */
+    @FunctionalInterface
+    public interface Fetcher {
+        Response fetch(String url, Entry cached) throws Exception;
+    }
+
+    private final Path cacheDir;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, Entry> memory = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MEMORY_ENTRIES;
+        }
+    };
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final ExecutorService refresher = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ApiResponseCache(Path cacheDir) {
+        this.cacheDir = cacheDir;
+        try {
+            Files.createDirectories(cacheDir);
+        } catch (IOException e) {
+            logger.warn("Cannot create API cache directory {}: {}", cacheDir, e.getMessage());
+        }
+        refresher.execute(this::sweep);
+    }
+
+    /**
+     * Get the process-wide API response cache.
+     * @return the shared ApiResponseCache instance
+     */
+    public static ApiResponseCache shared() {
+        return shared;
+    }
+
+    /**
+     * Time to live for responses of an endpoint, or zero for endpoints that must not be cached.
+     */
+    static Duration ttlFor(String url) {
+        String path = url.replaceFirst("^https?://[^/]+", "");
+        if (path.startsWith("/at-home/")) {
+            // Node URLs are only valid for a short while
+            return Duration.ZERO;
+        }
+        if (path.startsWith("/statistics/")) {
+            return Duration.ofMinutes(15);
+        }
+        if (path.startsWith("/chapter")) {
+            return Duration.ofMinutes(30);
+        }
+        if (path.startsWith("/manga/")) {
+            return MAX_TTL;
+        }
+        if (path.startsWith("/manga")) {
+            return Duration.ofMinutes(10);
+        }
+        return Duration.ofMinutes(5);
+    }
+
+    /**
+     * Get the response body for {@code url}, from the cache when possible.
+     */
+    public byte[] get(String url, Fetcher fetcher) throws Exception {
+        Duration ttl = ttlFor(url);
+        if (ttl.isZero()) {
+            return fetchAndStore(url, null, fetcher).body();
+        }
+
+        Entry cached = lookup(url);
+        if (cached != null) {
+            long age = System.currentTimeMillis() - cached.fetchedAt();
+            if (age <= ttl.toMillis()) {
+                return cached.body();
+            }
+            if (age <= ttl.plus(MAX_STALE).toMillis()) {
+                refreshInBackground(url, cached, fetcher);
+                return cached.body();
+            }
+        }
+
+        try {
+            return fetchAndStore(url, cached, fetcher).body();
+        } catch (Exception e) {
+            if (cached == null) {
+                throw e;
+            }
+            // Something old beats nothing when offline
+            logger.warn("Serving expired response for {}: {}", url, e.getMessage());
+            return cached.body();
+        }
+    }
+
+    public synchronized void clear() {
+        memory.clear();
+        try (var files = Files.list(cacheDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to clear API cache: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Delete files written longer ago than any entry may be served from the
+     * cache, and temp files left behind by an interrupted write.
+     */
+    void sweep() {
+        long now = System.currentTimeMillis();
+        int deleted = 0;
+        try (var files = Files.list(cacheDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                try {
+                    long age = now - Files.getLastModifiedTime(file).toMillis();
+                    // A young temp file may still be being written
+                    Duration maxAge = file.toString().endsWith(".tmp") ? Duration.ofHours(1) : MAX_TTL.plus(MAX_STALE);
+                    if (age > maxAge.toMillis()) {
+                        Files.deleteIfExists(file);
+                        deleted++;
+                    }
+                } catch (NoSuchFileException e) {
+                    // Replaced or cleared meanwhile
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to sweep API cache: {}", e.getMessage());
+        }
+        if (deleted > 0) {
+            logger.debug("Swept {} expired API cache entries", deleted);
+        }
+    }
+
+    private void refreshInBackground(String url, Entry cached, Fetcher fetcher) {
+        if (!refreshing.add(url)) {
+            return;
+        }
+        refresher.execute(() -> {
+            try {
+                fetchAndStore(url, cached, fetcher);
+            } catch (Exception e) {
+                logger.debug("Background refresh of {} failed: {}", url, e.getMessage());
+            } finally {
+                refreshing.remove(url);
+            }
+        });
+    }
+
+    private Entry fetchAndStore(String url, Entry cached, Fetcher fetcher) throws Exception {
+        Response response = fetcher.fetch(url, cached);
+        Entry entry;
+        if (response.status() == 304 && cached != null) {
+            entry = new Entry(url, cached.body(),
+                    response.etag() != null ? response.etag() : cached.etag(),
+                    response.lastModified() != null ? response.lastModified() : cached.lastModified(),
+                    System.currentTimeMillis());
+        } else {
+            entry = new Entry(url, response.body(), response.etag(), response.lastModified(),
+                    System.currentTimeMillis());
+        }
+        if (!ttlFor(url).isZero()) {
+            store(entry);
+        }
+        return entry;
+    }
+
+    private Entry lookup(String url) {
+        synchronized (this) {
+            Entry entry = memory.get(url);
+            if (entry != null) {
+                return entry;
+            }
+        }
+
+        Path file = cacheDir.resolve(CacheManager.digest(url));
+        try {
+            Entry entry = mapper.readValue(file.toFile(), Entry.class);
+            if (!url.equals(entry.url())) {
+                return null;
+            }
+            synchronized (this) {
+                memory.put(url, entry);
+            }
+            return entry;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            if (Files.exists(file)) {
+                logger.warn("Ignoring unreadable API cache entry for {}: {}", url, e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    private void store(Entry entry) {
+        synchronized (this) {
+            memory.put(entry.url(), entry);
+        }
+
+        Path target = cacheDir.resolve(CacheManager.digest(entry.url()));
+        try {
+            Path temp = Files.createTempFile(cacheDir, target.getFileName().toString(), ".tmp");
+            try {
+                mapper.writeValue(temp.toFile(), entry);
+                CacheManager.moveAtomically(temp, target);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to persist API response for {}: {}", entry.url(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of MangaDex@Home nodes: how fast and how reliable each host
+ * has been, and which node was assigned to each chapter. Page downloads use
+ * this to steer away from slow or failing nodes.
+ */
+public class AtHomeNodes {
+    private static final Logger logger = LogManager.getLogger(AtHomeNodes.class);
+
+    private static final String API = "https://api.mangadex.org";
+    /** Consecutive failures after which a host is avoided. */
+    private static final int MAX_CONSECUTIVE_FAILURES = 2;
+    /** Average latency above which a host is considered slow. */
+    private static final long SLOW_MILLIS = 4000;
+    /** How long a failing or slow host is avoided before it gets another chance. */
+    private static final long PENALTY_MILLIS = 60_000;
+    /** Minimum time between asking for a new node for the same chapter. */
+    private static final long REFRESH_INTERVAL_MILLIS = 30_000;
+    private static final int MAX_CHAPTERS = 256;
+    /** Weight of the newest sample in the moving latency average. */
+    private static final double LATENCY_WEIGHT = 0.3;
+
+    private static final AtHomeNodes shared = new AtHomeNodes();
+
+    private final Map<String, HostStats> hosts = new ConcurrentHashMap<>();
+    private final Map<String, ChapterPages> chapters = new ConcurrentHashMap<>();
+    private final Map<String, Long> lastRefresh = new ConcurrentHashMap<>();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private volatile NodeReporter reporter = NodeReporter.LOGGING;
+
+    private static final class HostStats {
+        private double averageMillis;
+        private int samples;
+        private int consecutiveFailures;
+        private long lastFailure;
+        private long slowSince;
+
+        synchronized void record(long millis, boolean success) {
+            if (success) {
+                averageMillis = samples == 0 ? millis : averageMillis + LATENCY_WEIGHT * (millis - averageMillis);
+                samples++;
+                consecutiveFailures = 0;
+                if (averageMillis <= SLOW_MILLIS) {
+                    slowSince = 0;
+                } else if (samples >= 3 && slowSince == 0) {
+                    slowSince = System.currentTimeMillis();
+                }
+            } else {
+                consecutiveFailures++;
+                lastFailure = System.currentTimeMillis();
+            }
+        }
+
+        synchronized boolean isHealthy() {
+            if (System.currentTimeMillis() - lastFailure < PENALTY_MILLIS
+                    && consecutiveFailures >= MAX_CONSECUTIVE_FAILURES) {
+                return false;
+            }
+            if (samples < 3 || averageMillis <= SLOW_MILLIS) {
+                return true;
+            }
+            // A skipped host gets no new samples, so the slow verdict has to expire on its own
+            if (System.currentTimeMillis() - slowSince >= PENALTY_MILLIS) {
+                samples = 0;
+                averageMillis = 0;
+                slowSince = 0;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Get the process-wide node tracker.
+     * @return the shared AtHomeNodes instance
+     */
+    public static AtHomeNodes shared() {
+        return shared;
+    }
+
+    public void setReporter(NodeReporter reporter) {
+        this.reporter = reporter;
+    }
+
+    /**
+     * Remember which node serves a chapter, so failover can find its alternatives.
+     */
+    public void register(ChapterPages pages) {
+        if (chapters.size() >= MAX_CHAPTERS) {
+            chapters.clear();
+        }
+        chapters.put(pages.hash(), pages);
+    }
+
+    /**
+     * @return the chapter the image hash belongs to, or null if it was never registered
+     */
+    ChapterPages lookup(String hash) {
+        return chapters.get(hash);
+    }
+
+    /**
+     * Get the data-saver version of an original image URL.
+     * @return the URL on the same server, or null if the chapter is unknown or has no data-saver images
+     */
+    public String dataSaverUrl(String url) {
+        ChapterPages.PageRef page = ChapterPages.parseUrl(url);
+        ChapterPages chapter = page != null ? chapters.get(page.hash()) : null;
+        ChapterPages.PageRef saver = chapter != null ? chapter.dataSaverOf(page) : null;
+        return saver != null ? saver.url() : null;
+    }
+
+    /**
+     * Record the outcome of a download and pass it on to the {@link NodeReporter}.
+     */
+    void record(String url, String host, long millis, boolean success, boolean cached, long bytes) {
+        hosts.computeIfAbsent(host, h -> new HostStats()).record(millis, success);
+        if (!URI.create(ChapterPages.UPLOADS_BASE).getHost().equals(host)) {
+            // The uploads origin is not part of the node network and must not be reported
+            reporter.report(url, success, cached, bytes, millis);
+        }
+    }
+
+    public boolean isHealthy(String host) {
+        HostStats stats = hosts.get(host);
+        return stats == null || stats.isHealthy();
+    }
+
+    /**
+     * Ask MangaDex for a new node for the chapter. Rate limited per chapter,
+     * since the endpoint itself only allows a few calls per minute.
+     * @return the chapter on its new node, or null if no refresh was made
+     */
+    ChapterPages refresh(ChapterPages pages, RequestScheduler.Priority priority)
+            throws IOException, InterruptedException {
+        long now = System.currentTimeMillis();
+        Long previous = lastRefresh.get(pages.chapterId());
+        if (previous != null && now - previous < REFRESH_INTERVAL_MILLIS) {
+            return null;
+        }
+        lastRefresh.put(pages.chapterId(), now);
+
+        // forcePort443 asks for a node reachable through restrictive firewalls
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(API + "/at-home/server/" + pages.chapterId() + "?forcePort443=true"))
+                .header("User-Agent", SharedHttpClient.USER_AGENT)
+                .GET()
+                .build();
+        HttpResponse<byte[]> response = RequestScheduler.shared()
+                .send(request, HttpResponse.BodyHandlers.ofByteArray(), priority);
+        if (response.statusCode() >= 400) {
+            throw new IOException("MangaDex returned HTTP " + response.statusCode() + " for a new node");
+        }
+
+        ChapterPages refreshed = pages.withBaseUrl(mapper.readTree(response.body()).get("baseUrl").asText());
+        logger.info("Chapter {} moved from {} to {}", pages.chapterId(), pages.baseUrl(), refreshed.baseUrl());
+        register(refreshed);
+        return refreshed;
+    }
+}
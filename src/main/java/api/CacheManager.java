@@ -1,34 +1,113 @@
 package api;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 import static java.nio.file.Files.walk;
 import ui.showOptions;
 
-public class CacheManager {
+/**
+ * Disk cache for downloaded page images.
+ * Entries are keyed by the SHA-256 digest of their URL and stored in two
+ * levels of shard directories ({@code ab/cd/abcd...}). An index file lists
+ * every entry so lookups never have to touch the filesystem.
+ * <p>
+ * The cache is bounded by a byte budget. Once it is exceeded, the least
+ * recently used entries are evicted on a background thread until the cache
+ * drops below {@link #LOW_WATERMARK} of the budget.
+ * <p>
+ * Access times are appended to the index once a minute so LRU order
+ * survives restarts. {@link #close()} stops that and flushes what is left.
+ */
+public class CacheManager implements Closeable {
+
+    private static final String INDEX_FILE = "index";
+    private static final String REMOVED_PREFIX = "-";
+    private static final long DEFAULT_MAX_BYTES = 2048L * 1024 * 1024;
+    private static final double LOW_WATERMARK = 0.9;
+    private static final long INDEX_FLUSH_INTERVAL_SECONDS = 60;
+
+    /** Background thread shared by all caches for eviction and index flushes. */
+    private static final ScheduledThreadPoolExecutor maintenance = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread thread = new Thread(r, "cache-maintenance");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    static {
+        // A closed cache must not stay reachable through its cancelled flush
+        maintenance.setRemoveOnCancelPolicy(true);
+    }
 
     private final Path cacheDir;
+    private final Path indexFile;
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private final Object indexLock = new Object();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicBoolean evictionScheduled = new AtomicBoolean();
+    private final Set<String> accessedKeys = ConcurrentHashMap.newKeySet();
+    private final ScheduledFuture<?> accessTimesFlush;
+    private long maxBytes = DEFAULT_MAX_BYTES;
     private showOptions options;
     private boolean cachingEnabled = true; // Default to enabled
 
     public CacheManager() {
         // Use proper Path API for cross-platform compatibility
-        this.cacheDir = Paths.get(
+        this(Paths.get(
             System.getProperty("user.home"),
             ".yomikomu",
             "cache"
-        );
+        ));
+    }
+
+    public CacheManager(Path cacheDir) {
+        this.cacheDir = cacheDir;
+        this.indexFile = cacheDir.resolve(INDEX_FILE);
 
         try {
             Files.createDirectories(cacheDir);
+            loadIndex();
         } catch (IOException e) {
             System.err.println("Failed to create cache directory: " + cacheDir);
             e.printStackTrace();
         }
+
+        accessTimesFlush = maintenance.scheduleWithFixedDelay(this::flushAccessTimes,
+                INDEX_FLUSH_INTERVAL_SECONDS, INDEX_FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /** Size and last access time of a cache entry. */
+    private static final class Entry {
+        final long size;
+        volatile long lastAccess;
+
+        Entry(long size, long lastAccess) {
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
     }
 
     /**
@@ -39,9 +118,28 @@ public class CacheManager {
         this.options = options;
         if (options != null) {
             this.cachingEnabled = options.isCachingEnabled();
+            this.maxBytes = options.getCacheSizeMb() * 1024L * 1024L;
+            scheduleEvictionIfNeeded();
         }
     }
 
+    /**
+     * Set the byte budget of the cache. Entries over budget are evicted in the background.
+     * @param maxBytes maximum total size of all cached entries
+     */
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        scheduleEvictionIfNeeded();
+    }
+
+    /**
+     * Get the total size of all cached entries.
+     * @return size in bytes
+     */
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
     /**
      * Check if caching is enabled.
      * @return true if caching is enabled, false otherwise
@@ -54,8 +152,7 @@ public class CacheManager {
     }
 
     public File getCachedFile(String url) {
-        String filename = generateFilename(url);
-        return cacheDir.resolve(filename).toFile();
+        return entryPath(digest(url)).toFile();
     }
 
     public boolean isCached(String url) {
@@ -63,15 +160,32 @@ public class CacheManager {
         if (!isCachingEnabled()) {
             return false;
         }
-        return getCachedFile(url).exists();
+        return index.containsKey(digest(url));
     }
 
+    /**
+     * Read a cached entry.
+     * @return the cached bytes, or null if caching is disabled or the entry is gone
+     */
     public byte[] getFromCache(String url) throws IOException {
         // If caching is disabled, return null to fetch fresh data
         if (!isCachingEnabled()) {
             return null;
         }
-        return Files.readAllBytes(getCachedFile(url).toPath());
+        String key = digest(url);
+        try {
+            byte[] data = Files.readAllBytes(entryPath(key));
+            Entry entry = index.get(key);
+            if (entry != null) {
+                entry.lastAccess = System.currentTimeMillis();
+                accessedKeys.add(key);
+            }
+            return data;
+        } catch (java.nio.file.NoSuchFileException e) {
+            // The file was removed behind our back, forget about it
+            forget(key);
+            return null;
+        }
     }
 
     public void saveToCache(String url, byte[] data) throws IOException {
@@ -79,29 +193,243 @@ public class CacheManager {
         if (!isCachingEnabled()) {
             return;
         }
-        Files.write(getCachedFile(url).toPath(), data);
+        String key = digest(url);
+        Path target = entryPath(key);
+        Files.createDirectories(target.getParent());
+
+        // Write to a temp file first so readers never see a half-written entry
+        Path temp = Files.createTempFile(target.getParent(), key, ".tmp");
+        try {
+            Files.write(temp, data);
+            moveAtomically(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        long now = System.currentTimeMillis();
+        Entry previous = index.put(key, new Entry(data.length, now));
+        totalBytes.addAndGet(data.length - (previous != null ? previous.size : 0));
+        appendIndex(key + " " + data.length + " " + now);
+
+        scheduleEvictionIfNeeded();
     }
 
     public void clearCache() {
+        synchronized (indexLock) {
+            index.clear();
+            totalBytes.set(0);
+            try {
+                if (Files.exists(cacheDir)) {
+                    try (Stream<Path> pathStream = walk(cacheDir)) {
+                        pathStream.sorted(Comparator.reverseOrder())
+                                .map(Path::toFile)
+                                .forEach(file -> {
+                                    if (!file.delete()) {
+                                        System.err.println("Failed to delete: " + file.getAbsolutePath());
+                                    }
+                                });
+                    }
+                    Files.createDirectories(cacheDir);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Load the index file, rebuilding it from the shard directories if it is
+     * missing, and rewrite it without removed or duplicate lines.
+     */
+    private void loadIndex() throws IOException {
+        synchronized (indexLock) {
+            if (Files.exists(indexFile)) {
+                for (String line : Files.readAllLines(indexFile, StandardCharsets.UTF_8)) {
+                    if (line.startsWith(REMOVED_PREFIX)) {
+                        index.remove(line.substring(REMOVED_PREFIX.length()));
+                        continue;
+                    }
+                    String[] parts = line.split(" ");
+                    if (parts.length >= 2) {
+                        try {
+                            long lastAccess = parts.length >= 3 ? Long.parseLong(parts[2]) : 0;
+                            index.put(parts[0], new Entry(Long.parseLong(parts[1]), lastAccess));
+                        } catch (NumberFormatException e) {
+                            // Ignore torn lines from an interrupted append
+                        }
+                    }
+                }
+            } else {
+                rebuildIndex();
+            }
+            index.values().forEach(entry -> totalBytes.addAndGet(entry.size));
+            writeIndex();
+        }
+    }
+
+    /**
+     * Rebuild the index from the shard directories. Files from the old flat,
+     * hashCode-named layout are deleted since they may hold colliding entries.
+     */
+    private void rebuildIndex() throws IOException {
+        try (Stream<Path> pathStream = walk(cacheDir)) {
+            for (Path path : (Iterable<Path>) pathStream::iterator) {
+                if (!Files.isRegularFile(path)) {
+                    continue;
+                }
+                if (cacheDir.relativize(path).getNameCount() == 3 && !path.toString().endsWith(".tmp")) {
+                    index.put(path.getFileName().toString(),
+                            new Entry(Files.size(path), Files.getLastModifiedTime(path).toMillis()));
+                } else if (!path.equals(indexFile)) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        List<String> lines = new ArrayList<>(index.size());
+        index.forEach((key, entry) -> lines.add(key + " " + entry.size + " " + entry.lastAccess));
+        Path temp = Files.createTempFile(cacheDir, INDEX_FILE, ".tmp");
         try {
-            if (Files.exists(cacheDir)) {
-                try (java.util.stream.Stream<Path> pathStream = walk(cacheDir)) {
-                    pathStream.sorted(Comparator.reverseOrder())
-                            .map(Path::toFile)
-                            .forEach(file -> {
-                                if (!file.delete()) {
-                                    System.err.println("Failed to delete: " + file.getAbsolutePath());
-                                }
-                            });
+            Files.write(temp, lines, StandardCharsets.UTF_8);
+            moveAtomically(temp, indexFile);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void forget(String key) throws IOException {
+        Entry removed = index.remove(key);
+        if (removed != null) {
+            totalBytes.addAndGet(-removed.size);
+            appendIndex(REMOVED_PREFIX + key);
+        }
+    }
+
+    private void scheduleEvictionIfNeeded() {
+        if (totalBytes.get() > maxBytes && evictionScheduled.compareAndSet(false, true)) {
+            maintenance.execute(() -> {
+                try {
+                    evict();
+                } finally {
+                    evictionScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Delete least recently used entries until the cache is below the low watermark.
+     * Runs on the maintenance thread.
+     */
+    synchronized void evict() {
+        long target = (long) (maxBytes * LOW_WATERMARK);
+        if (totalBytes.get() <= maxBytes) {
+            return;
+        }
+
+        List<Map.Entry<String, Entry>> entries = new ArrayList<>(index.entrySet());
+        entries.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+
+        int evicted = 0;
+        for (Map.Entry<String, Entry> candidate : entries) {
+            if (totalBytes.get() <= target) {
+                break;
+            }
+            // Skip entries that were rewritten since the snapshot was taken
+            if (index.remove(candidate.getKey(), candidate.getValue())) {
+                totalBytes.addAndGet(-candidate.getValue().size);
+                try {
+                    Files.deleteIfExists(entryPath(candidate.getKey()));
+                    appendIndex(REMOVED_PREFIX + candidate.getKey());
+                } catch (IOException e) {
+                    System.err.println("Failed to evict cache entry " + candidate.getKey() + ": " + e.getMessage());
+                }
+                evicted++;
+            }
+        }
+
+        if (evicted > 0) {
+            synchronized (indexLock) {
+                try {
+                    writeIndex();
+                } catch (IOException e) {
+                    System.err.println("Failed to write cache index: " + e.getMessage());
                 }
-                Files.createDirectories(cacheDir);
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
     }
 
-    private String generateFilename(String url) {
-        return String.valueOf(url.hashCode());
+    /**
+     * Persist the in-memory access times so LRU order survives restarts.
+     * Each entry read since the last flush gets one line appended to the
+     * index; the lines are folded together when the index is next loaded.
+     */
+    public void flushAccessTimes() {
+        if (accessedKeys.isEmpty()) {
+            return;
+        }
+        synchronized (indexLock) {
+            // Looked up under the lock so a line never lands after the removal of its entry
+            StringBuilder lines = new StringBuilder();
+            for (String key : accessedKeys) {
+                accessedKeys.remove(key);
+                Entry entry = index.get(key);
+                if (entry != null) {
+                    lines.append(key).append(' ').append(entry.size).append(' ').append(entry.lastAccess)
+                            .append(System.lineSeparator());
+                }
+            }
+            if (lines.isEmpty()) {
+                return;
+            }
+            try {
+                Files.writeString(indexFile, lines, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                System.err.println("Failed to write cache index: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stop the periodic access time flush and write out the access times
+     * not flushed yet. The cache can still be used afterwards, but further
+     * access times are only written by another close.
+     */
+    @Override
+    public void close() {
+        accessTimesFlush.cancel(false);
+        flushAccessTimes();
+    }
+
+    private void appendIndex(String line) throws IOException {
+        synchronized (indexLock) {
+            Files.writeString(indexFile, line + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private Path entryPath(String key) {
+        return cacheDir.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+
+    static String digest(String url) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha.digest(url.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM is required to ship SHA-256
+            throw new IllegalStateException(e);
+        }
     }
 }
@@ -0,0 +1,85 @@
+package api;
+
+import model.Chapter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Walks a paginated chapter feed. The first page is fetched on its own to
+ * learn the total; the remaining offsets are then fetched concurrently and
+ * delivered to the consumer in order as soon as each is ready.
+ */
+final class ChapterPager {
+    private static final Logger logger = LogManager.getLogger(ChapterPager.class);
+
+    /** Largest page size the /chapter endpoint accepts. */
+    static final int PAGE_SIZE = 100;
+    /** MangaDex rejects requests where offset + limit exceeds this. */
+    static final int MAX_RESULTS = 10000;
+    /** Pages fetched at the same time after the first one. */
+    private static final int CONCURRENCY = 4;
+
+    /** One page of results together with the feed's total size. */
+    record ChapterPage(int total, List<Chapter> chapters) {
+    }
+
+    @FunctionalInterface
+    interface PageFetcher {
+        ChapterPage fetch(int offset, int limit) throws Exception;
+    }
+
+    private ChapterPager() {
+    }
+
+    static void stream(PageFetcher fetcher, Consumer<List<Chapter>> onBatch) throws Exception {
+        ChapterPage first = fetcher.fetch(0, PAGE_SIZE);
+        onBatch.accept(first.chapters());
+
+        int total = first.total();
+        if (total > MAX_RESULTS) {
+            logger.warn("Feed has {} chapters, only the first {} can be listed", total, MAX_RESULTS);
+            total = MAX_RESULTS;
+        }
+        if (total <= PAGE_SIZE || first.chapters().isEmpty()) {
+            return;
+        }
+
+        Semaphore permits = new Semaphore(CONCURRENCY, true);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<ChapterPage>> pages = new ArrayList<>();
+            for (int offset = PAGE_SIZE; offset < total; offset += PAGE_SIZE) {
+                final int pageOffset = offset;
+                final int limit = Math.min(PAGE_SIZE, total - offset);
+                pages.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return fetcher.fetch(pageOffset, limit);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+
+            try {
+                for (Future<ChapterPage> page : pages) {
+                    onBatch.accept(page.get().chapters());
+                }
+            } catch (ExecutionException e) {
+                pages.forEach(p -> p.cancel(true));
+                if (e.getCause() instanceof Exception cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Where the images of a chapter live, as reported by {@code /at-home/server}.
+ * The same files can be served by any MangaDex@Home node or by the uploads
+ * origin, in original ({@code data}) or compressed ({@code data-saver}) quality.
+ */
+public record ChapterPages(String chapterId, String baseUrl, String hash, List<String> data, List<String> dataSaver) {
+
+    /** Origin that serves every chapter when no node is usable. */
+    static final String UPLOADS_BASE = "https://uploads.mangadex.org";
+    static final String DATA = "data";
+    static final String DATA_SAVER = "data-saver";
+
+    private static final Pattern PAGE_URL = Pattern.compile("^(https?://.+)/(data|data-saver)/([0-9A-Za-z]+)/([^/]+)$");
+
+    /**
+     * One image of a chapter on a particular server.
+     */
+    public record PageRef(String baseUrl, String quality, String hash, String file) {
+
+        public String url() {
+            return baseUrl + "/" + quality + "/" + hash + "/" + file;
+        }
+
+        public String host() {
+            return URI.create(baseUrl).getHost();
+        }
+
+        PageRef on(String otherBaseUrl) {
+            return new PageRef(otherBaseUrl, quality, hash, file);
+        }
+
+        /**
+         * Cache key that stays the same whichever server the image came from.
+         */
+        public String cacheKey() {
+            return "mangadex:" + quality + "/" + hash + "/" + file;
+        }
+    }
+
+    static ChapterPages parse(String chapterId, JsonNode root) {
+        JsonNode chapter = root.get("chapter");
+        List<String> data = new ArrayList<>();
+        for (JsonNode file : chapter.path("data")) {
+            data.add(file.asText());
+        }
+        List<String> dataSaver = new ArrayList<>();
+        for (JsonNode file : chapter.path("dataSaver")) {
+            dataSaver.add(file.asText());
+        }
+        return new ChapterPages(chapterId, root.get("baseUrl").asText(), chapter.get("hash").asText(),
+                List.copyOf(data), List.copyOf(dataSaver));
+    }
+
+    /**
+     * Get the image URLs on this chapter's node.
+     */
+    public List<String> urls(boolean useDataSaver) {
+        List<String> files = useDataSaver && !dataSaver.isEmpty() ? dataSaver : data;
+        String quality = files == dataSaver ? DATA_SAVER : DATA;
+        List<String> urls = new ArrayList<>(files.size());
+        for (String file : files) {
+            urls.add(new PageRef(baseUrl, quality, hash, file).url());
+        }
+        return urls;
+    }
+
+    ChapterPages withBaseUrl(String otherBaseUrl) {
+        return new ChapterPages(chapterId, otherBaseUrl, hash, data, dataSaver);
+    }
+
+    /**
+     * Get the compressed counterpart of an original image.
+     * @return the data-saver image, or null if there is none
+     */
+    PageRef dataSaverOf(PageRef page) {
+        int index = data.indexOf(page.file());
+        if (!DATA.equals(page.quality()) || index < 0 || index >= dataSaver.size()) {
+            return null;
+        }
+        return new PageRef(page.baseUrl(), DATA_SAVER, hash, dataSaver.get(index));
+    }
+
+    /**
+     * Split a MangaDex image URL into its parts.
+     * @return the page, or null if the URL does not point at a MangaDex chapter image
+     */
+    public static PageRef parseUrl(String url) {
+        Matcher m = PAGE_URL.matcher(url);
+        if (!m.matches()) {
+            return null;
+        }
+        return new PageRef(m.group(1), m.group(2), m.group(3), m.group(4));
+    }
+
+    /**
+     * Cache key for an image URL. MangaDex images are keyed without their
+     * host, since the node serving a chapter changes from session to session.
+     */
+    public static String cacheKey(String url) {
+        PageRef page = parseUrl(url);
+        return page != null ? page.cacheKey() : url;
+    }
+}
@@ -0,0 +1,108 @@
+package api;
+
+import model.Chapter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Warms up the next chapter in the background while the current one is read.
+ * The page URL list is kept in memory and the data-saver copies of the first
+ * few pages are pulled through a {@link PagePipeline} so they land in both
+ * cache tiers.
+ */
+public class ChapterPrefetcher {
+    private static final Logger logger = LogManager.getLogger(ChapterPrefetcher.class);
+
+    /** Pages downloaded concurrently by a prefetch, kept low to leave bandwidth for reading. */
+    private static final int PREFETCH_CONCURRENCY = 2;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "chapter-prefetch");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private final Map<String, List<String>> pageUrls = new ConcurrentHashMap<>();
+    private final PagePipeline pipeline;
+    private volatile int pageCount;
+    private Future<?> current;
+    private String currentChapterId;
+
+    public ChapterPrefetcher(CacheManager cacheManager, ImageMemoryCache memoryCache, int pageCount) {
+        this.pipeline = new PagePipeline(cacheManager, memoryCache, PREFETCH_CONCURRENCY,
+                RequestScheduler.Priority.PREFETCH);
+        this.pageCount = pageCount;
+    }
+
+    /**
+     * Set how many pages of a chapter are prefetched. Applies from the next prefetch on.
+     */
+    public void setPageCount(int pageCount) {
+        this.pageCount = pageCount;
+    }
+
+    /**
+     * Start prefetching a chapter, replacing any prefetch in progress.
+     * Does nothing if the chapter is already being or has been prefetched.
+     */
+    public synchronized void prefetch(MangaDexClient api, Chapter chapter) {
+        if (chapter.id().equals(currentChapterId)) {
+            return;
+        }
+        cancel();
+        currentChapterId = chapter.id();
+
+        int count = pageCount;
+        current = executor.submit(() -> {
+            try {
+                List<String> urls = api.getPageUrls(chapter.id());
+                pageUrls.put(chapter.id(), urls);
+                logger.debug("Prefetching {} of {} pages for chapter {}",
+                        Math.min(count, urls.size()), urls.size(), chapter.id());
+
+                // Data-saver copies are a fraction of the size; the reader upgrades them once shown
+                List<String> prefetchUrls = new ArrayList<>();
+                for (String url : urls.subList(0, Math.min(count, urls.size()))) {
+                    String saverUrl = AtHomeNodes.shared().dataSaverUrl(url);
+                    prefetchUrls.add(saverUrl != null ? saverUrl : url);
+                }
+                pipeline.load(prefetchUrls,
+                        (index, page) -> {},
+                        () -> Thread.currentThread().isInterrupted());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.warn("Failed to prefetch chapter {}: {}", chapter.id(), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Get the page URLs of a prefetched chapter.
+     * @return the URLs, or null if the chapter was not prefetched
+     */
+    public List<String> getPageUrls(String chapterId) {
+        return pageUrls.get(chapterId);
+    }
+
+    /**
+     * Stop the running prefetch and forget everything that was prefetched.
+     * Pages that already reached the caches stay there.
+     */
+    public synchronized void cancel() {
+        if (current != null) {
+            current.cancel(true);
+            current = null;
+        }
+        currentChapterId = null;
+        pageUrls.clear();
+    }
+}
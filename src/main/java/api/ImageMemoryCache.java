@@ -0,0 +1,98 @@
+package api;
+
+import java.awt.image.BufferedImage;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory cache of decoded page images, sitting in front of {@link CacheManager}.
+ * The budget is measured in pixels rather than entries, and the least recently
+ * used pages are dropped once it is exceeded. Images are additionally held
+ * through soft references so the garbage collector can reclaim them before
+ * the heap runs out.
+ */
+public class ImageMemoryCache {
+
+    /** Default budget: a quarter of the max heap, at 4 bytes per ARGB pixel. */
+    private static final long DEFAULT_MAX_PIXELS = Runtime.getRuntime().maxMemory() / 4 / 4;
+
+    private static final ImageMemoryCache shared = new ImageMemoryCache(DEFAULT_MAX_PIXELS);
+
+    private final long maxPixels;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalPixels = 0;
+
+    private record Entry(SoftReference<BufferedImage> image, long pixels) {
+    }
+
+    public ImageMemoryCache(long maxPixels) {
+        this.maxPixels = maxPixels;
+    }
+
+    /**
+     * Get the process-wide decoded image cache.
+     * @return the shared ImageMemoryCache instance
+     */
+    public static ImageMemoryCache shared() {
+        return shared;
+    }
+
+    /**
+     * Get a decoded image.
+     * @return the image, or null if it was never cached, evicted, or reclaimed by the GC
+     */
+    public synchronized BufferedImage get(String url) {
+        Entry entry = entries.get(url);
+        if (entry == null) {
+            return null;
+        }
+        BufferedImage image = entry.image().get();
+        if (image == null) {
+            remove(url);
+        }
+        return image;
+    }
+
+    /**
+     * Cache a decoded image, evicting least recently used images as needed.
+     * Images larger than the whole budget are not cached.
+     */
+    public synchronized void put(String url, BufferedImage image) {
+        long pixels = (long) image.getWidth() * image.getHeight();
+        if (pixels > maxPixels) {
+            return;
+        }
+
+        remove(url);
+        entries.put(url, new Entry(new SoftReference<>(image), pixels));
+        totalPixels += pixels;
+
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (totalPixels > maxPixels && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            totalPixels -= eldest.getValue().pixels();
+            it.remove();
+        }
+    }
+
+    public synchronized void remove(String url) {
+        Entry removed = entries.remove(url);
+        if (removed != null) {
+            totalPixels -= removed.pixels();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalPixels = 0;
+    }
+
+    /**
+     * Get the number of pixels currently accounted for.
+     */
+    public synchronized long getTotalPixels() {
+        return totalPixels;
+    }
+}
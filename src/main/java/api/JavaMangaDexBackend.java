@@ -0,0 +1,145 @@
+package api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import model.Chapter;
+import model.Manga;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * MangaDex backend talking to the API directly through {@link HttpClient}.
+ * Responses go through the shared {@link ApiResponseCache}, and requests
+ * through the shared {@link RequestScheduler}.
+ * This is the default backend. It holds no per-call state and is safe to
+ * use from any number of threads.
+ */
+public class JavaMangaDexBackend implements MangaDexBackend {
+    private static final String API = "https://api.mangadex.org";
+    private static final String NSFW_RATINGS =
+            "&contentRating[]=safe&contentRating[]=suggestive&contentRating[]=erotica&contentRating[]=pornographic";
+
+    private final RequestScheduler scheduler = RequestScheduler.shared();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ApiResponseCache responseCache = ApiResponseCache.shared();
+    private final SingleFlight<String, byte[]> inFlight = new SingleFlight<>();
+
+    private JsonNode get(String url) throws Exception {
+        // Identical requests made at the same time share one response
+        return mapper.readTree(inFlight.run(url, () -> responseCache.get(url, this::fetch)));
+    }
+
+    private ApiResponseCache.Response fetch(String url, ApiResponseCache.Entry cached) throws Exception {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .header("User-Agent", SharedHttpClient.USER_AGENT)
+                .GET();
+        if (cached != null && cached.etag() != null) {
+            builder.header("If-None-Match", cached.etag());
+        }
+        if (cached != null && cached.lastModified() != null) {
+            builder.header("If-Modified-Since", cached.lastModified());
+        }
+
+        RequestScheduler.Priority priority = url.startsWith(API + "/statistics/")
+                ? RequestScheduler.Priority.STATS
+                : RequestScheduler.Priority.CHAPTER_LIST;
+        HttpResponse<byte[]> res = scheduler.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray(), priority);
+
+        if (res.statusCode() >= 400) {
+            throw new java.io.IOException("MangaDex returned HTTP " + res.statusCode() + " for " + url);
+        }
+        return new ApiResponseCache.Response(res.statusCode(), res.body(),
+                res.headers().firstValue("ETag").orElse(null),
+                res.headers().firstValue("Last-Modified").orElse(null));
+    }
+
+    @Override
+    public List<Manga> searchManga(String title, boolean nsfwEnabled) throws Exception {
+        String url = API + "/manga?limit=20&title=" +
+                URLEncoder.encode(title, StandardCharsets.UTF_8);
+        if (nsfwEnabled) {
+            url += NSFW_RATINGS;
+        }
+
+        JsonNode root = get(url);
+        List<Manga> result = new ArrayList<>();
+
+        for (JsonNode node : root.path("data")) {
+            result.add(new Manga(node.get("id").asText(), preferredTitle(node)));
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<Manga> getManga(String mangaId) throws Exception {
+        JsonNode data = get(API + "/manga/" + mangaId).path("data");
+        if (data.isMissingNode()) {
+            return Optional.empty();
+        }
+        return Optional.of(new Manga(data.get("id").asText(), preferredTitle(data)));
+    }
+
+    @Override
+    public void streamChapters(String mangaId, boolean nsfwEnabled, Consumer<List<Chapter>> onBatch) throws Exception {
+        ChapterPager.stream((offset, limit) -> getChapterPage(mangaId, nsfwEnabled, offset, limit), onBatch);
+    }
+
+    private ChapterPager.ChapterPage getChapterPage(String mangaId, boolean nsfwEnabled, int offset, int limit) throws Exception {
+        String url = API + "/chapter?manga=" + mangaId +
+                "&translatedLanguage[]=en" +
+                "&order[chapter]=asc" +
+                "&limit=" + limit +
+                "&offset=" + offset;
+        if (nsfwEnabled) {
+            url += NSFW_RATINGS;
+        }
+
+        JsonNode root = get(url);
+        List<Chapter> chapters = new ArrayList<>();
+
+        for (JsonNode node : root.path("data")) {
+            JsonNode attr = node.path("attributes");
+
+            chapters.add(new Chapter(
+                    node.get("id").asText(),
+                    attr.path("title").asText(""),
+                    attr.path("chapter").asText("")
+            ));
+        }
+        return new ChapterPager.ChapterPage(root.path("total").asInt(chapters.size()), chapters);
+    }
+
+    @Override
+    public List<String> getPageUrls(String chapterId) throws Exception {
+        ChapterPages pages = ChapterPages.parse(chapterId, get(API + "/at-home/server/" + chapterId));
+        // Lets page downloads move to another node if this one turns out to be bad
+        AtHomeNodes.shared().register(pages);
+        return pages.urls(false);
+    }
+
+    @Override
+    public JsonNode getMangaStats(String mangaId) throws Exception {
+        JsonNode root = get(API + "/statistics/manga/" + mangaId);
+
+        return root
+                .path("statistics")
+                .path(mangaId);
+    }
+
+    private static String preferredTitle(JsonNode node) {
+        JsonNode titles = node.path("attributes").path("title");
+        return titles.has("en")
+                ? titles.get("en").asText()
+                : titles.elements().next().asText();
+    }
+}
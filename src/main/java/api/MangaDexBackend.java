@@ -0,0 +1,39 @@
+package api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import model.Chapter;
+import model.Manga;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * An implementation of the MangaDex calls used by {@link MangaDexClient}.
+ */
+public interface MangaDexBackend {
+
+    List<Manga> searchManga(String title, boolean nsfwEnabled) throws Exception;
+
+    Optional<Manga> getManga(String mangaId) throws Exception;
+
+    /**
+     * Get every chapter of a manga, in order.
+     */
+    default List<Chapter> getChapters(String mangaId, boolean nsfwEnabled) throws Exception {
+        List<Chapter> chapters = new ArrayList<>();
+        streamChapters(mangaId, nsfwEnabled, chapters::addAll);
+        return chapters;
+    }
+
+    /**
+     * Page through every chapter of a manga, handing each batch to {@code onBatch}
+     * in order as soon as it arrives.
+     */
+    void streamChapters(String mangaId, boolean nsfwEnabled, Consumer<List<Chapter>> onBatch) throws Exception;
+
+    List<String> getPageUrls(String chapterId) throws Exception;
+
+    JsonNode getMangaStats(String mangaId) throws Exception;
+}
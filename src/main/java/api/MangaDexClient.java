@@ -1,232 +1,71 @@
-/**
- * NOTE: THIS REQUIRES PYTHON TO WORK AS IT SHOULD.
- * THERE IS A FALLBACK, THOUGH THIS EDGE CASE HAS NEVER BEEN TESTED.
- * update: it has been tested and it works, totally not my bad code or anything caused an "unexpected test"
- * */
-
 package api;
 
-import com.fasterxml.jackson.databind.*;
-import exception.UhOhPythonDied;
+import com.fasterxml.jackson.databind.JsonNode;
+import model.Chapter;
+import model.Manga;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.python.util.PythonInterpreter;
-import org.python.core.*;
-import java.net.http.*;
-import java.net.*;
-import java.io.*;
-import java.util.*;
-import model.*;
-import ui.MangaListPanel;
-
-import javax.swing.*;
+import ui.showOptions;
 
-import static java.lang.System.err;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
+/**
+ * Entry point for all MangaDex calls.
+ * Requests go to the Java {@code HttpClient} backend by default; the
+ * Jython backend can be selected with the "API backend" option or the
+ * {@code shiori.api.backend=python} system property.
+ * Java backend traffic is paced by the shared {@link RequestScheduler}.
+ */
 public class MangaDexClient {
     private static final Logger logger = LogManager.getLogger(MangaDexClient.class);
-    private static final String API = "https://api.mangadex.org";
-    private final HttpClient client = HttpClient.newHttpClient();
-    private final ObjectMapper mapper = new ObjectMapper();
 
-    // Jython interpreter and Python module
-    private final PythonInterpreter interpreter;
-    private final boolean pythonAvailable;
+    /** Backend name for {@link JavaMangaDexBackend}. */
+    public static final String BACKEND_JAVA = "java";
+    /** Backend name for {@link PythonMangaDexBackend}. */
+    public static final String BACKEND_PYTHON = "python";
+
+    private final MangaDexBackend backend;
 
     public MangaDexClient() {
-        // Initialize Jython interpreter
-        this.interpreter = new PythonInterpreter();
-        this.pythonAvailable = initializePythonModule();
+        this(System.getProperty("shiori.api.backend", new showOptions().getApiBackend()));
     }
 
     /**
-     * Initialize the Python interpreter and load the mangadex_api module.
-     * @return true if Python module loaded successfully
+     * @param backendName {@link #BACKEND_JAVA} or {@link #BACKEND_PYTHON}
      */
-    private boolean initializePythonModule() {
-        try {
-            // Add the python module path to Python's path
-            interpreter.exec("import sys");
-            logger.debug("Python module initialized");
-
-
-            // Get the resource path for the Python module
-            String pythonPath = getPythonPath();
-            if (!pythonPath.isEmpty()) {
-                interpreter.exec("sys.path.insert(0, '" + pythonPath + "')");
-            }
-
-            // Import the mangadex_api module
-            interpreter.exec("import mangadex_api");
-            logger.debug("LOG-PYTHON: Attempted to import mangadex_api");
-
-            return true;
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(
-                    null,
-                    "Python fault: " + e.getMessage(),
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE
-            );
-            throw new UhOhPythonDied(null, null) {};
+    public MangaDexClient(String backendName) {
+        JavaMangaDexBackend javaBackend = new JavaMangaDexBackend();
+        if (BACKEND_PYTHON.equalsIgnoreCase(backendName)) {
+            logger.info("Using Jython MangaDex backend");
+            this.backend = new PythonMangaDexBackend(javaBackend);
+        } else {
+            logger.debug("Using Java MangaDex backend");
+            this.backend = javaBackend;
         }
     }
 
     /**
-     * Get the appropriate Python module path.
-     * Handles both IDE and JAR execution modes.
-     */
-    private String getPythonPath() {
-        // First, check if running from IDE (file system)
-        File pythonFile = new File("src/main/resources/python/mangadex_api.py");
-        if (pythonFile.exists()) {
-            logger.debug("yeah it exists");
-            return pythonFile.getParentFile().getAbsolutePath();
-        }
-
-        // Check if running from working directory
-        File cwdFile = new File("src/main/resources/python/mangadex_api.py");
-        if (cwdFile.exists()) {
-            return cwdFile.getParentFile().getAbsolutePath();
-        }
-
-        // Running from JAR - resources are in classpath at /python/
-        // Return empty string, Jython will use classpath resources
-        return "";
-    }
-
-    private JsonNode get(String url) throws Exception {
-        HttpRequest req = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .GET()
-                .build();
-
-        HttpResponse<String> res =
-                client.send(req, HttpResponse.BodyHandlers.ofString());
-
-        return mapper.readTree(res.body());
-    }
-
-    /**
-
-    /**
-     * Search manga using Python implementation if available, fallback to Java.
+     * Search manga by title.
      */
     public List<Manga> searchManga(String title) throws Exception {
         return searchManga(title, false);
     }
 
     public List<Manga> searchManga(String title, boolean nsfwEnabled) throws Exception {
-        if (pythonAvailable) {
-            try {
-                // Set parameters for Python call
-                interpreter.set("title", title);
-                interpreter.set("nsfw_enabled", nsfwEnabled);
-
-                // Execute Python function and capture result
-                interpreter.exec(
-                    "results = mangadex_api.search_manga(title, nsfw_enabled)\n" +
-                    "import json\n" +
-                    "results_json = json.dumps(results) if results else None"
-                );
-
-                String jsonStr = interpreter.get("results_json").toString();
-                if (jsonStr != null && !jsonStr.isEmpty()) {
-                    JsonNode root = mapper.readTree(jsonStr);
-                    List<Manga> result = new ArrayList<>();
-
-                    for (JsonNode node : root) {
-                        String id = node.get("id").asText();
-                        String mangaTitle = node.get("title").asText();
-                        result.add(new Manga(id, mangaTitle));
-                    }
-
-                    if (!result.isEmpty()) {
-                        return result;
-                    }
-                }
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(
-                        null,
-                        "Python fault: " + e.getMessage(),
-                        "Error",
-                        JOptionPane.ERROR_MESSAGE
-                );
-                throw new UhOhPythonDied(null, null) {};
-            }
-        }
-
-        // Fallback to Java implementation
-        logger.debug("looks like java took control...");
-        String url = API + "/manga?limit=20&title=" +
-                URLEncoder.encode(title, "UTF-8");
-
-
-        JsonNode root = get(url);
-        List<Manga> result = new ArrayList<>();
-
-        for (JsonNode node : root.get("data")) {
-            String id = node.get("id").asText();
-            JsonNode titles = node.get("attributes").get("title");
-
-            String name = titles.has("en")
-                    ? titles.get("en").asText()
-                    : titles.elements().next().asText();
-
-            result.add(new Manga(id, name));
-        }
-        return result;
+        return backend.searchManga(title, nsfwEnabled);
     }
 
     /**
-     * Get a manga by its ID using Python implementation if available.
+     * Get a manga by its ID.
      */
-    public java.util.Optional<Manga> getManga(String mangaId) throws Exception {
-        if (pythonAvailable) {
-            try {
-                interpreter.set("manga_id", mangaId);
-                interpreter.exec(
-                    "result = mangadex_api.get_manga(manga_id)\n" +
-                    "import json\n" +
-                    "result_json = json.dumps(result) if result else None"
-                );
-
-                String jsonStr = interpreter.get("result_json").toString();
-                if (jsonStr != null && !jsonStr.isEmpty() && !jsonStr.equals("None")) {
-                    JsonNode node = mapper.readTree(jsonStr);
-                    String id = node.get("id").asText();
-                    String mangaTitle = node.get("title").asText();
-                    return java.util.Optional.of(new Manga(id, mangaTitle));
-                }
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(
-                        null,
-                        "Python fault: " + e.getMessage(),
-                        "Error",
-                        JOptionPane.ERROR_MESSAGE
-                );
-                throw new UhOhPythonDied(null, null) {};
-            }
-        }
-
-        // Fallback to Java implementation
-        String url = API + "/manga/" + mangaId;
-
-        JsonNode root = get(url);
-        JsonNode data = root.get("data");
-
-        String id = data.get("id").asText();
-        JsonNode titles = data.get("attributes").get("title");
-
-        String name = titles.has("en")
-                ? titles.get("en").asText()
-                : titles.elements().next().asText();
-
-        return java.util.Optional.of(new Manga(id, name));
+    public Optional<Manga> getManga(String mangaId) throws Exception {
+        return backend.getManga(mangaId);
     }
 
     /**
-     * Get chapters for a manga using Python implementation if available.
+     * Get chapters for a manga.
      */
     public List<Chapter> getChapters(String mangaId) throws Exception {
         return getChapters(mangaId, false);
@@ -236,147 +75,28 @@ public class MangaDexClient {
      * Get chapters for a manga with optional NSFW content rating.
      */
     public List<Chapter> getChapters(String mangaId, boolean nsfwEnabled) throws Exception {
-        if (pythonAvailable) {
-            try {
-                // Set parameters for Python call
-                interpreter.set("manga_id", mangaId);
-                interpreter.set("nsfw_enabled", nsfwEnabled);
-
-                // Execute Python function and capture result
-                interpreter.exec(
-                    "chapters = mangadex_api.get_chapters(manga_id, nsfw_enabled)\n" +
-                    "import json\n" +
-                    "chapters_json = json.dumps(chapters) if chapters else None"
-                );
-
-                String jsonStr = interpreter.get("chapters_json").toString();
-                if (jsonStr != null && !jsonStr.isEmpty()) {
-                    JsonNode root = mapper.readTree(jsonStr);
-                    List<Chapter> result = new ArrayList<>();
-
-                    for (JsonNode node : root) {
-                        String id = node.get("id").asText();
-                        String chapterTitle = node.get("title").asText("");
-                        String chapterNumber = node.get("number").asText("");
-                        result.add(new Chapter(id, chapterTitle, chapterNumber));
-                    }
-
-                    if (!result.isEmpty()) {
-                        return result;
-                    }
-                }
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(
-                        null,
-                        "Python fault: " + e.getMessage(),
-                        "Error",
-                        JOptionPane.ERROR_MESSAGE
-                );
-                throw new UhOhPythonDied(null, null) {};
-            }
-        }
-
-        // Fallback to Java implementation
-        String url = API + "/chapter?manga=" + mangaId +
-                "&translatedLanguage[]=en" +
-                "&order[chapter]=asc";
-
-
-        JsonNode root = get(url);
-        List<Chapter> chapters = new ArrayList<>();
-
-        for (JsonNode node : root.get("data")) {
-            JsonNode attr = node.get("attributes");
+        return backend.getChapters(mangaId, nsfwEnabled);
+    }
 
-            chapters.add(new Chapter(
-                    node.get("id").asText(),
-                    attr.get("chapter").asText(""),
-                    attr.get("title").asText("")
-            ));
-        }
-        return chapters;
+    /**
+     * Page through every chapter of a manga, handing each batch to {@code onBatch}
+     * in order as soon as it arrives.
+     */
+    public void streamChapters(String mangaId, boolean nsfwEnabled, Consumer<List<Chapter>> onBatch) throws Exception {
+        backend.streamChapters(mangaId, nsfwEnabled, onBatch);
     }
 
     /**
-     * Get page URLs for a chapter using Python implementation if available.
+     * Get page URLs for a chapter.
      */
     public List<String> getPageUrls(String chapterId) throws Exception {
-        if (pythonAvailable) {
-            try {
-                interpreter.set("chapter_id", chapterId);
-                interpreter.exec(
-                    "page_urls = mangadex_api.get_page_urls(chapter_id)\n" +
-                    "import json\n" +
-                    "page_urls_json = json.dumps(page_urls)"
-                );
-
-                String jsonStr = interpreter.get("page_urls_json").toString();
-                if (jsonStr != null && !jsonStr.isEmpty()) {
-                    JsonNode root = mapper.readTree(jsonStr);
-                    List<String> urls = new ArrayList<>();
-
-                    for (JsonNode node : root) {
-                        urls.add(node.asText());
-                    }
-
-                    if (!urls.isEmpty()) {
-                        return urls;
-                    }
-                }
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(
-                        null,
-                        "Python fault: " + e.getMessage(),
-                        "Error",
-                        JOptionPane.ERROR_MESSAGE
-                );
-                throw new UhOhPythonDied(null, null) {};
-
-            }
-        }
-
-        // Fallback to Java implementation
-        JsonNode root = get(API + "/at-home/server/" + chapterId);
-
-        String base = root.get("baseUrl").asText();
-        String hash = root.get("chapter").get("hash").asText();
-
-        List<String> urls = new ArrayList<>();
-        for (JsonNode file : root.get("chapter").get("data")) {
-            urls.add(base + "/data/" + hash + "/" + file.asText());
-        }
-        return urls;
+        return backend.getPageUrls(chapterId);
     }
 
     /**
-     * Get manga statistics using Python implementation if available.
+     * Get manga statistics.
      */
     public JsonNode getMangaStats(String mangaId) throws Exception {
-        if (pythonAvailable) {
-            try {
-                interpreter.set("manga_id", mangaId);
-                interpreter.exec(
-                    "stats = mangadex_api.get_manga_stats(manga_id)\n" +
-                    "import json\n" +
-                    "stats_json = json.dumps(stats) if stats else None"
-                );
-
-                String jsonStr = interpreter.get("stats_json").toString();
-                if (jsonStr != null && !jsonStr.isEmpty() && !jsonStr.equals("None")) {
-                    return mapper.readTree(jsonStr);
-                }
-            } catch (Exception e) {
-                err.println("Python get_manga_stats failed, falling back to Java: " + e.getMessage());
-            }
-        }
-
-        // Fallback to Java implementation
-        String url = API + "/statistics/manga/" + mangaId;
-        JsonNode root = get(url);
-
-        return root
-                .path("statistics")
-                .path(mangaId);
+        return backend.getMangaStats(mangaId);
     }
 }
-
@@ -0,0 +1,18 @@
+package api;
+
+import org.apache.logging.log4j.LogManager;
+
+/**
+ * Receives the outcome of every image download from a MangaDex@Home node.
+ * MangaDex asks clients to send these to its report endpoint so it can
+ * retire bad nodes; the default implementation only logs them.
+ */
+@FunctionalInterface
+public interface NodeReporter {
+
+    void report(String url, boolean success, boolean cached, long bytes, long durationMillis);
+
+    NodeReporter LOGGING = (url, success, cached, bytes, durationMillis) ->
+            LogManager.getLogger(NodeReporter.class).debug("Node report: {} success={} bytes={} duration={}ms",
+                    url, success, bytes, durationMillis);
+}
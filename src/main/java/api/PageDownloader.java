@@ -0,0 +1,238 @@
+package api;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Downloads page images, failing over when a MangaDex@Home node is slow or broken.
+ * <p>
+ * The assigned node is tried first unless it has been failing. After that
+ * come a freshly assigned node, the uploads origin, and finally the
+ * data-saver version of the image. Every attempt is recorded with
+ * {@link AtHomeNodes} so later downloads skip bad hosts straight away.
+ * <p>
+ * A streamed body is only recorded once it has been read to the end or has
+ * failed, so a node that breaks off mid-body does not count as a success.
+ */
+class PageDownloader {
+    private static final Logger logger = LogManager.getLogger(PageDownloader.class);
+
+    /** Time after which a node counts as failed for this image. */
+    private static final Duration NODE_TIMEOUT = Duration.ofSeconds(10);
+    /** Requests to the origin get longer, there is nowhere left to go after it. */
+    private static final Duration ORIGIN_TIMEOUT = Duration.ofSeconds(30);
+
+    /** The body of an image, and the URL it was actually fetched from. */
+    record Download<T>(String url, T body) {
+    }
+
+    private final AtHomeNodes nodes;
+
+    PageDownloader(AtHomeNodes nodes) {
+        this.nodes = nodes;
+    }
+
+    /**
+     * @param lane scheduler lane for every request made, which may be promoted meanwhile
+     */
+    Download<byte[]> download(String url, RequestScheduler.Lane lane) throws IOException {
+        return download(url, lane, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    /**
+     * Download an image as a stream. Failover only covers errors before the
+     * body starts; callers handle errors while reading it.
+     */
+    Download<InputStream> stream(String url, RequestScheduler.Lane lane) throws IOException {
+        return download(url, lane, HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    private <T> Download<T> download(String url, RequestScheduler.Lane lane, HttpResponse.BodyHandler<T> handler)
+            throws IOException {
+        ChapterPages.PageRef page = ChapterPages.parseUrl(url);
+        if (page == null) {
+            return new Download<>(url, fetch(url, null, ORIGIN_TIMEOUT, lane, handler));
+        }
+
+        IOException failure = null;
+        Set<String> tried = new LinkedHashSet<>();
+
+        if (nodes.isHealthy(page.host())) {
+            try {
+                return attempt(page, tried, NODE_TIMEOUT, lane, handler);
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        ChapterPages chapter = nodes.lookup(page.hash());
+        if (chapter != null) {
+            try {
+                ChapterPages refreshed = nodes.refresh(chapter, lane.priority());
+                if (refreshed != null) {
+                    chapter = refreshed;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while looking for a new node");
+            } catch (IOException e) {
+                logger.debug("Could not get a new node for {}: {}", chapter.chapterId(), e.getMessage());
+            }
+            if (!chapter.baseUrl().equals(page.baseUrl()) && nodes.isHealthy(page.on(chapter.baseUrl()).host())) {
+                try {
+                    return attempt(page.on(chapter.baseUrl()), tried, NODE_TIMEOUT, lane, handler);
+                } catch (InterruptedIOException e) {
+                    throw e;
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+        }
+
+        try {
+            return attempt(page.on(ChapterPages.UPLOADS_BASE), tried, ORIGIN_TIMEOUT, lane, handler);
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException e) {
+            failure = e;
+        }
+
+        ChapterPages.PageRef saver = chapter != null ? chapter.dataSaverOf(page) : null;
+        if (saver != null) {
+            logger.warn("Falling back to data-saver for {}", url);
+            return attempt(saver.on(ChapterPages.UPLOADS_BASE), tried, ORIGIN_TIMEOUT, lane, handler);
+        }
+        throw failure;
+    }
+
+    private <T> Download<T> attempt(ChapterPages.PageRef page, Set<String> tried, Duration timeout,
+                                    RequestScheduler.Lane lane, HttpResponse.BodyHandler<T> handler)
+            throws IOException {
+        String url = page.url();
+        if (!tried.add(url)) {
+            throw new IOException("Already failed: " + url);
+        }
+        return new Download<>(url, fetch(url, page.host(), timeout, lane, handler));
+    }
+
+    private <T> T fetch(String url, String host, Duration timeout, RequestScheduler.Lane lane,
+                        HttpResponse.BodyHandler<T> handler) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .header("User-Agent", SharedHttpClient.USER_AGENT)
+                .timeout(timeout)
+                .GET()
+                .build();
+
+        // Only the exchange itself says anything about the node, not the time spent queued for a token
+        AtomicLong millis = new AtomicLong();
+        boolean success = false;
+        boolean cached = false;
+        long bytes = 0;
+        boolean deferred = false;
+        try {
+            HttpResponse<T> response = RequestScheduler.shared().send(request, handler, lane, millis::set);
+            if (response.statusCode() >= 400) {
+                RequestScheduler.discard(response);
+                throw new IOException("HTTP " + response.statusCode() + " for " + url);
+            }
+            success = true;
+            cached = response.headers().firstValue("X-Cache").map(v -> v.startsWith("HIT")).orElse(false);
+            if (host != null && response.body() instanceof InputStream body) {
+                // The body is still on its way; its outcome is known once it has been read
+                deferred = true;
+                @SuppressWarnings("unchecked")
+                T reporting = (T) new ReportingStream(body, url, host, millis.get(), cached);
+                return reporting;
+            }
+            bytes = response.body() instanceof byte[] data ? data.length : -1;
+            return response.body();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while downloading " + url);
+        } finally {
+            // A cancelled download says nothing about the node
+            if (host != null && !deferred && !Thread.currentThread().isInterrupted()) {
+                nodes.record(url, host, millis.get(), success, cached, bytes);
+            }
+        }
+    }
+
+    /**
+     * Records a streamed body with {@link AtHomeNodes} once it reached its end
+     * or failed, counting the bytes actually received. A stream closed early,
+     * or read by a cancelled thread, is not recorded.
+     */
+    private final class ReportingStream extends FilterInputStream {
+        private final String url;
+        private final String host;
+        private final long headerMillis;
+        private final boolean cached;
+        private final long start = System.nanoTime();
+        private long bytes = 0;
+        private boolean recorded = false;
+
+        ReportingStream(InputStream in, String url, String host, long headerMillis, boolean cached) {
+            super(in);
+            this.url = url;
+            this.host = host;
+            this.headerMillis = headerMillis;
+            this.cached = cached;
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                int b = super.read();
+                if (b < 0) {
+                    record(true);
+                } else {
+                    bytes++;
+                }
+                return b;
+            } catch (IOException e) {
+                record(false);
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            try {
+                int n = super.read(buffer, offset, length);
+                if (n < 0) {
+                    record(true);
+                } else {
+                    bytes += n;
+                }
+                return n;
+            } catch (IOException e) {
+                record(false);
+                throw e;
+            }
+        }
+
+        private void record(boolean success) {
+            if (recorded || Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            recorded = true;
+            long millis = headerMillis + (System.nanoTime() - start) / 1_000_000;
+            nodes.record(url, host, millis, success, cached, bytes);
+        }
+    }
+}
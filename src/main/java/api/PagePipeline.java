@@ -0,0 +1,437 @@
+package api;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.imageio.ImageIO;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Downloads and decodes the pages of a chapter concurrently.
+ * At most {@code concurrency} pages are in flight at once, but pages are
+ * always handed back to the caller in reading order.
+ * Pages already held by the {@link ImageMemoryCache} skip both I/O and decoding.
+ * MangaDex images are cached by {@link ChapterPages#cacheKey(String)}, so a
+ * page stays cached when the chapter is later served by another node.
+ * <p>
+ * When previews are allowed, a cached data-saver copy of a page (e.g. from a
+ * prefetch) is delivered instead of downloading the original, and flagged so
+ * the caller can upgrade it later.
+ * <p>
+ * Pages larger than the target set with {@link #setTarget(int, double)} are
+ * decoded with source subsampling, never at full size. Subsampled images are
+ * kept in the memory tier next to, not instead of, full size ones.
+ */
+public class PagePipeline {
+    private static final Logger logger = LogManager.getLogger(PagePipeline.class);
+
+    /**
+     * Shared by all pipelines so a page is never fetched twice at once, even
+     * by pipelines in different scheduler lanes. A caller joining a download
+     * from a more urgent lane promotes it, so a visible page does not wait
+     * behind a prefetch of itself.
+     */
+    private static final SingleFlight<String, Page> inFlight = new SingleFlight<>();
+    /** Scheduler lanes of the pages in flight, shared by all their callers. */
+    private static final Map<String, Flight> flights = new ConcurrentHashMap<>();
+
+    /** Upper bound for a decoded page; taller strips are subsampled further to stay below it. */
+    static final long MAX_DECODE_PIXELS = 16L * 1024 * 1024;
+    private static final String SUBSAMPLED_SUFFIX = "#subsampled";
+    private static final int MAX_REMEMBERED_SIZES = 4096;
+
+    /** Full sizes of pages whose memory-cached image is subsampled. */
+    private static final Map<String, Dimension> fullSizes = new ConcurrentHashMap<>();
+
+    private final CacheManager cacheManager;
+    private final ImageMemoryCache memoryCache;
+    private volatile int concurrency;
+    private final PageDownloader downloader;
+    private final RequestScheduler.Priority priority;
+    private volatile int fitWidth = 0;
+    private volatile double zoomFactor = 1.0;
+
+    public PagePipeline(CacheManager cacheManager, ImageMemoryCache memoryCache, int concurrency) {
+        this(cacheManager, memoryCache, concurrency, RequestScheduler.Priority.VISIBLE_PAGE);
+    }
+
+    /**
+     * @param priority scheduler lane used for downloads
+     */
+    public PagePipeline(CacheManager cacheManager, ImageMemoryCache memoryCache, int concurrency,
+                        RequestScheduler.Priority priority) {
+        this.cacheManager = cacheManager;
+        this.memoryCache = memoryCache;
+        this.concurrency = Math.max(1, concurrency);
+        this.downloader = new PageDownloader(AtHomeNodes.shared());
+        this.priority = priority;
+    }
+
+    /**
+     * Set how many pages are fetched at once. Applies from the next load on.
+     */
+    public void setConcurrency(int concurrency) {
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /** The lane of a page in flight, and how many callers are waiting for it. Guarded by {@link #flights}. */
+    private static final class Flight {
+        final RequestScheduler.Lane lane;
+        int callers = 1;
+
+        Flight(RequestScheduler.Lane lane) {
+            this.lane = lane;
+        }
+    }
+
+    /**
+     * A decoded page. {@code width} and {@code height} are the page's full
+     * size, which is larger than the image when it was subsampled.
+     * {@code preview} is set when the image is a data-saver copy standing in
+     * for the original.
+     */
+    public record Page(BufferedImage image, boolean preview, int width, int height) {
+
+        static Page of(BufferedImage image, boolean preview) {
+            return new Page(image, preview, image.getWidth(), image.getHeight());
+        }
+    }
+
+    /**
+     * Receives decoded pages in order. {@code page} is null when the page
+     * could not be fetched or decoded.
+     */
+    @FunctionalInterface
+    public interface PageConsumer {
+        void accept(int index, Page page);
+    }
+
+    /**
+     * Receives early information about pages still downloading, in no
+     * particular order and on pipeline threads.
+     */
+    public interface PageProgress {
+        PageProgress NONE = new PageProgress() {
+        };
+
+        /** The page's dimensions, known once its header has arrived. */
+        default void sized(int index, int width, int height) {
+        }
+
+        /** A small, possibly partially decoded, rendition of the page. */
+        default void partial(int index, BufferedImage preview) {
+        }
+    }
+
+    /**
+     * Set how pages will be shown, so they can be decoded at that resolution.
+     * @param fitWidth width that wider pages are shrunk to, or 0 to show pages at full size
+     * @param zoomFactor zoom applied on top
+     */
+    public void setTarget(int fitWidth, double zoomFactor) {
+        this.fitWidth = Math.max(0, fitWidth);
+        this.zoomFactor = zoomFactor;
+    }
+
+    /**
+     * Subsampling factor for a page of the given full size under the current target.
+     */
+    int subsampling(int width, int height) {
+        int target = targetWidth(width);
+        int factor = Math.max(1, width / Math.max(1, target));
+        while ((long) (width / factor) * (height / factor) > MAX_DECODE_PIXELS) {
+            factor++;
+        }
+        return factor;
+    }
+
+    /**
+     * Width a page of the given full size is decoded at under the current target.
+     */
+    public int decodedWidth(int width, int height) {
+        int factor = subsampling(width, height);
+        return (width + factor - 1) / factor;
+    }
+
+    private int targetWidth(int width) {
+        int shown = fitWidth > 0 ? Math.min(width, fitWidth) : width;
+        return (int) Math.min(width, Math.ceil(shown * zoomFactor));
+    }
+
+    /**
+     * Load every page in {@code urls}, blocking until all pages were delivered
+     * or {@code cancelled} reports true. Interrupting the calling thread aborts
+     * every download still in flight.
+     */
+    public void load(List<String> urls, PageConsumer consumer, BooleanSupplier cancelled) throws InterruptedException {
+        load(urls, false, consumer, PageProgress.NONE, cancelled);
+    }
+
+    /**
+     * Like {@link #load(List, PageConsumer, BooleanSupplier)}, optionally
+     * delivering cached data-saver copies in place of originals, and
+     * reporting pages to {@code progress} while they stream in.
+     */
+    public void load(List<String> urls, boolean allowPreviews, PageConsumer consumer, PageProgress progress,
+                     BooleanSupplier cancelled) throws InterruptedException {
+        // Fair permits so pages start downloading roughly in reading order
+        Semaphore permits = new Semaphore(concurrency, true);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Page>> futures = new ArrayList<>(urls.size());
+            for (int i = 0; i < urls.size(); i++) {
+                final String url = urls.get(i);
+                final ProgressiveDecoder.Listener listener = listenerFor(i, progress);
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return fetchAndDecode(url, allowPreviews, listener);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                if (cancelled.getAsBoolean()) {
+                    futures.forEach(f -> f.cancel(true));
+                    return;
+                }
+
+                Page page = null;
+                try {
+                    page = futures.get(i).get();
+                } catch (InterruptedException e) {
+                    futures.forEach(f -> f.cancel(true));
+                    throw e;
+                } catch (ExecutionException e) {
+                    logger.warn("Failed to load page {} ({}): {}", i, urls.get(i), e.getCause().getMessage());
+                }
+                consumer.accept(i, page);
+            }
+        }
+    }
+
+    /**
+     * Load a single page, e.g. to bring an evicted page back on screen.
+     * @return the decoded page, or null if it could not be decoded
+     */
+    public Page loadPage(String url) throws IOException {
+        return fetchAndDecode(url, false, null);
+    }
+
+    private static ProgressiveDecoder.Listener listenerFor(int index, PageProgress progress) {
+        if (progress == PageProgress.NONE) {
+            return null;
+        }
+        return new ProgressiveDecoder.Listener() {
+            @Override
+            public void sized(int width, int height) {
+                progress.sized(index, width, height);
+            }
+
+            @Override
+            public void partial(BufferedImage preview) {
+                progress.partial(index, preview);
+            }
+        };
+    }
+
+    /**
+     * @param listener receives progress while the page streams in, or null to download it in one piece
+     */
+    private Page fetchAndDecode(String url, boolean allowPreview, ProgressiveDecoder.Listener listener)
+            throws IOException {
+        String key = ChapterPages.cacheKey(url);
+        Page cached = fromMemory(key, false);
+        if (cached != null) {
+            return cached;
+        }
+
+        if (allowPreview) {
+            Page preview = cachedPreview(url);
+            if (preview != null) {
+                return preview;
+            }
+        }
+
+        RequestScheduler.Lane lane = joinFlight(key);
+        try {
+            return inFlight.run(key, () -> fetchAndDecodeOnce(url, key, listener, lane));
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        } finally {
+            leaveFlight(key);
+        }
+    }
+
+    /**
+     * Get the lane the page is fetched in, promoting it to this pipeline's priority.
+     */
+    private RequestScheduler.Lane joinFlight(String key) {
+        return flights.compute(key, (k, flight) -> {
+            if (flight == null) {
+                return new Flight(new RequestScheduler.Lane(priority));
+            }
+            flight.lane.promote(priority);
+            flight.callers++;
+            return flight;
+        }).lane;
+    }
+
+    private void leaveFlight(String key) {
+        flights.computeIfPresent(key, (k, flight) -> --flight.callers > 0 ? flight : null);
+    }
+
+    /**
+     * Get a page from the memory tier, if it is held at a resolution good enough for the current target.
+     */
+    private Page fromMemory(String key, boolean preview) {
+        BufferedImage full = memoryCache.get(key);
+        if (full != null) {
+            return Page.of(full, preview);
+        }
+        BufferedImage subsampled = memoryCache.get(key + SUBSAMPLED_SUFFIX);
+        Dimension size = fullSizes.get(key);
+        if (subsampled == null || size == null) {
+            return null;
+        }
+        if (subsampled.getWidth() < decodedWidth(size.width, size.height)) {
+            // Decoded for a smaller target, e.g. before zooming in
+            return null;
+        }
+        return new Page(subsampled, preview, size.width, size.height);
+    }
+
+    private void remember(String key, Page page) {
+        if (page.image().getWidth() == page.width()) {
+            memoryCache.put(key, page.image());
+            return;
+        }
+        if (fullSizes.size() >= MAX_REMEMBERED_SIZES) {
+            fullSizes.clear();
+        }
+        fullSizes.put(key, new Dimension(page.width(), page.height()));
+        memoryCache.put(key + SUBSAMPLED_SUFFIX, page.image());
+    }
+
+    /**
+     * Get the data-saver copy of an original from either cache tier, without any download.
+     * @return the preview, or null if no copy is cached
+     */
+    private Page cachedPreview(String url) throws IOException {
+        String saverUrl = AtHomeNodes.shared().dataSaverUrl(url);
+        if (saverUrl == null) {
+            return null;
+        }
+        String saverKey = ChapterPages.cacheKey(saverUrl);
+        Page cached = fromMemory(saverKey, true);
+        if (cached != null) {
+            return cached;
+        }
+        byte[] data = cacheManager.isCached(saverKey) ? cacheManager.getFromCache(saverKey) : null;
+        return data != null ? decode(url, saverKey, data, true) : null;
+    }
+
+    private Page fetchAndDecodeOnce(String url, String key, ProgressiveDecoder.Listener listener,
+                                    RequestScheduler.Lane lane) throws IOException {
+        // Another caller may have finished this page while we were queued
+        Page cached = fromMemory(key, false);
+        if (cached != null) {
+            return cached;
+        }
+
+        byte[] data = cacheManager.isCached(key) ? cacheManager.getFromCache(key) : null;
+        if (data != null) {
+            return decode(url, key, data, false);
+        }
+        return listener != null ? streamAndDecode(url, key, listener, lane) : downloadAndDecode(url, key, lane);
+    }
+
+    private Page downloadAndDecode(String url, String key, RequestScheduler.Lane lane) throws IOException {
+        PageDownloader.Download<byte[]> download = downloader.download(url, lane);
+        // A data-saver fallback is cached as what it is, so the original is tried again next time
+        String downloadedKey = ChapterPages.cacheKey(download.url());
+        cacheManager.saveToCache(downloadedKey, download.body());
+        return decode(url, downloadedKey, download.body(), !downloadedKey.equals(key));
+    }
+
+    /**
+     * Download a page and decode it as the bytes arrive. The decoder reads
+     * from the same buffer that is then written to the disk cache. If the
+     * body breaks off, the page is downloaded again through the full
+     * failover chain.
+     */
+    private Page streamAndDecode(String url, String key, ProgressiveDecoder.Listener listener,
+                                 RequestScheduler.Lane lane) throws IOException {
+        PageDownloader.Download<InputStream> download = downloader.stream(url, lane);
+        String downloadedKey = ChapterPages.cacheKey(download.url());
+        boolean preview = !downloadedKey.equals(key);
+
+        ProgressiveDecoder.Result result;
+        byte[] data;
+        try (InputStream body = download.body();
+             RetainingImageInputStream in = new RetainingImageInputStream(body)) {
+            result = ProgressiveDecoder.decode(in, listener, this::subsampling);
+            // The decoder may stop before the end, e.g. at trailing metadata
+            data = in.drain();
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw e;
+            }
+            logger.warn("Streaming {} broke off, downloading it again: {}", download.url(), e.getMessage());
+            return downloadAndDecode(url, key, lane);
+        }
+        cacheManager.saveToCache(downloadedKey, data);
+
+        if (result == null) {
+            // No streaming reader for this format, ImageIO.read may still cope
+            return decode(url, downloadedKey, data, preview);
+        }
+        Page page = new Page(result.image(), preview, result.width(), result.height());
+        remember(downloadedKey, page);
+        return page;
+    }
+
+    private Page decode(String url, String key, byte[] data, boolean preview) throws IOException {
+        // Don't spend CPU on a page nobody is waiting for anymore
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Cancelled before decoding " + url);
+        }
+
+        Page page;
+        try (RetainingImageInputStream in = new RetainingImageInputStream(data)) {
+            ProgressiveDecoder.Result result = ProgressiveDecoder.decode(in, new ProgressiveDecoder.Listener() {
+            }, this::subsampling);
+            if (result != null) {
+                page = new Page(result.image(), preview, result.width(), result.height());
+            } else {
+                BufferedImage image = ImageIO.read(new ByteArrayInputStream(data));
+                page = image != null ? Page.of(image, preview) : null;
+            }
+        }
+        if (page != null) {
+            remember(key, page);
+        }
+        return page;
+    }
+}
@@ -0,0 +1,164 @@
+package api;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.event.IIOReadUpdateListener;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Decodes an image while it is still arriving.
+ * The size is reported as soon as the header has been read, and small
+ * previews of the part decoded so far are handed out at most every
+ * {@link #PREVIEW_INTERVAL_MILLIS}, so a page can be shown long before its
+ * last byte is in. Progressive JPEGs report each completed pass the same way.
+ * <p>
+ * Large images can be decoded with source subsampling, so only the pixels
+ * that will actually be shown are ever allocated.
+ */
+final class ProgressiveDecoder {
+
+    /** Minimum time between two previews of the same image. */
+    static final long PREVIEW_INTERVAL_MILLIS = 200;
+    /** Previews are scaled down to at most this width to keep them cheap. */
+    static final int PREVIEW_WIDTH = 400;
+
+    /** A decoded image together with the full size of the source it was decoded from. */
+    record Result(BufferedImage image, int width, int height) {
+    }
+
+    /** Picks the subsampling factor for an image of the given full size. */
+    @FunctionalInterface
+    interface Subsampling {
+        int factor(int width, int height);
+
+        Subsampling NONE = (width, height) -> 1;
+    }
+
+    /** Receives what is known about an image while it decodes. Called on the decoding thread. */
+    interface Listener {
+        default void sized(int width, int height) {
+        }
+
+        default void partial(BufferedImage preview) {
+        }
+    }
+
+    private ProgressiveDecoder() {
+    }
+
+    /**
+     * Decode the first image in {@code in} at full resolution.
+     * @return the image, or null if no installed reader understands the data
+     */
+    static Result decode(InputStream in, Listener listener) throws IOException {
+        return decode(in, listener, Subsampling.NONE);
+    }
+
+    /**
+     * Decode the first image in {@code in}, keeping every n-th pixel in both
+     * directions as chosen by {@code subsampling}.
+     * @return the image, or null if no installed reader understands the data
+     */
+    static Result decode(InputStream in, Listener listener, Subsampling subsampling) throws IOException {
+        // Always buffer in memory; ImageIO's default may spill to temporary files
+        try (ImageInputStream stream = new MemoryCacheImageInputStream(in)) {
+            return decode(stream, listener, subsampling);
+        }
+    }
+
+    /**
+     * Decode the first image in {@code stream}, which is left open.
+     * @return the image, or null if no installed reader understands the data
+     */
+    static Result decode(ImageInputStream stream, Listener listener, Subsampling subsampling) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+        if (!readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(stream, true, true);
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            listener.sized(width, height);
+
+            ImageReadParam param = reader.getDefaultReadParam();
+            int factor = Math.max(1, subsampling.factor(width, height));
+            if (factor > 1) {
+                param.setSourceSubsampling(factor, factor, 0, 0);
+            }
+            reader.addIIOReadUpdateListener(new Updates(listener));
+            return new Result(reader.read(0, param), width, height);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    static BufferedImage preview(BufferedImage source) {
+        double scale = Math.min(1.0, (double) PREVIEW_WIDTH / source.getWidth());
+        int width = Math.max(1, (int) (source.getWidth() * scale));
+        int height = Math.max(1, (int) (source.getHeight() * scale));
+        BufferedImage preview = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = preview.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g2d.drawImage(source, 0, 0, width, height, null);
+        g2d.dispose();
+        return preview;
+    }
+
+    private static final class Updates implements IIOReadUpdateListener {
+        private final Listener listener;
+        private long lastPreview = System.currentTimeMillis();
+
+        Updates(Listener listener) {
+            this.listener = listener;
+        }
+
+        private void maybePreview(BufferedImage image) {
+            long now = System.currentTimeMillis();
+            if (now - lastPreview >= PREVIEW_INTERVAL_MILLIS) {
+                lastPreview = now;
+                listener.partial(preview(image));
+            }
+        }
+
+        @Override
+        public void imageUpdate(ImageReader source, BufferedImage theImage, int minX, int minY,
+                                int width, int height, int periodX, int periodY, int[] bands) {
+            maybePreview(theImage);
+        }
+
+        @Override
+        public void passComplete(ImageReader source, BufferedImage theImage) {
+            // A finished progressive pass covers the whole image at a lower quality
+            maybePreview(theImage);
+        }
+
+        @Override
+        public void passStarted(ImageReader source, BufferedImage theImage, int pass, int minPass, int maxPass,
+                                int minX, int minY, int periodX, int periodY, int[] bands) {
+        }
+
+        @Override
+        public void thumbnailPassStarted(ImageReader source, BufferedImage theThumbnail, int pass, int minPass,
+                                         int maxPass, int minX, int minY, int periodX, int periodY, int[] bands) {
+        }
+
+        @Override
+        public void thumbnailUpdate(ImageReader source, BufferedImage theThumbnail, int minX, int minY,
+                                    int width, int height, int periodX, int periodY, int[] bands) {
+        }
+
+        @Override
+        public void thumbnailPassComplete(ImageReader source, BufferedImage theThumbnail) {
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package api;
+
+import exception.UhOhPythonDied;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.python.core.PySystemState;
+import org.python.util.PythonInterpreter;
+
+import java.io.File;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed pool of Jython interpreters that have already imported {@code mangadex_api}.
+ * Each interpreter gets its own {@link PySystemState}, so interpreters share
+ * nothing and can run calls in parallel. A caller borrows an interpreter for
+ * the duration of one call and then returns it.
+ * <p>
+ * Interpreters start in the background, so creating a pool never blocks;
+ * the first call waits until the first interpreter is ready.
+ */
+public class PythonInterpreterPool {
+    private static final Logger logger = LogManager.getLogger(PythonInterpreterPool.class);
+
+    private final int size;
+    private final BlockingQueue<PythonInterpreter> idle;
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile Throwable failure;
+
+    /**
+     * Work done with a borrowed interpreter.
+     */
+    @FunctionalInterface
+    public interface InterpreterCall<T> {
+        T apply(PythonInterpreter interpreter) throws Exception;
+    }
+
+    /**
+     * Start warming up {@code size} interpreters in parallel in the background.
+     */
+    public PythonInterpreterPool(int size) {
+        this.size = size;
+        this.idle = new ArrayBlockingQueue<>(size);
+
+        long start = System.currentTimeMillis();
+        AtomicInteger started = new AtomicInteger();
+        ExecutorService warmup = Executors.newFixedThreadPool(size, r -> {
+            Thread thread = new Thread(r, "jython-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < size; i++) {
+            warmup.execute(() -> {
+                try {
+                    idle.add(createInterpreter());
+                    if (started.incrementAndGet() + failed.get() == size) {
+                        logger.info("Started {} Jython interpreter(s) in {} ms",
+                                started.get(), System.currentTimeMillis() - start);
+                    }
+                } catch (Exception | LinkageError e) {
+                    logger.error("Failed to start a Jython interpreter", e);
+                    failure = e;
+                    failed.incrementAndGet();
+                }
+            });
+        }
+        warmup.shutdown();
+    }
+
+    /**
+     * Borrow an interpreter, blocking until one is free, and run {@code call} with it.
+     * @throws UhOhPythonDied if no interpreter could be started
+     */
+    public <T> T withInterpreter(InterpreterCall<T> call) throws Exception {
+        PythonInterpreter interpreter;
+        while ((interpreter = idle.poll(100, TimeUnit.MILLISECONDS)) == null) {
+            if (failed.get() == size) {
+                throw new UhOhPythonDied("Failed to start Jython interpreters", failure);
+            }
+        }
+        try {
+            return call.apply(interpreter);
+        } finally {
+            idle.add(interpreter);
+        }
+    }
+
+    private static PythonInterpreter createInterpreter() {
+        PythonInterpreter interpreter = new PythonInterpreter(null, new PySystemState());
+        interpreter.exec("import sys");
+
+        // Get the resource path for the Python module
+        String pythonPath = getPythonPath();
+        if (!pythonPath.isEmpty()) {
+            interpreter.exec("sys.path.insert(0, '" + pythonPath + "')");
+        }
+
+        // Import the modules every call needs
+        interpreter.exec("import json");
+        interpreter.exec("import mangadex_api");
+        logger.debug("LOG-PYTHON: Attempted to import mangadex_api");
+        return interpreter;
+    }
+
+    /**
+     * Get the appropriate Python module path.
+     * Handles both IDE and JAR execution modes.
+     */
+    private static String getPythonPath() {
+        // First, check if running from IDE (file system)
+        File pythonFile = new File("src/main/resources/python/mangadex_api.py");
+        if (pythonFile.exists()) {
+            logger.debug("yeah it exists");
+            return pythonFile.getParentFile().getAbsolutePath();
+        }
+
+        // Running from JAR - resources are in classpath at /python/
+        // Return empty string, Jython will use classpath resources
+        return "";
+    }
+}
@@ -0,0 +1,194 @@
+/**
+ * NOTE: THIS REQUIRES PYTHON TO WORK AS IT SHOULD.
+ * Empty results from Python fall back to the Java backend.
+ * */
+
+package api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import exception.UhOhPythonDied;
+import model.Chapter;
+import model.Manga;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.python.core.Py;
+import org.python.core.PyObject;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static java.lang.System.err;
+
+/**
+ * Optional MangaDex backend running the bundled {@code mangadex_api.py} module in Jython.
+ * <p>
+ * Calls borrow an interpreter from a {@link PythonInterpreterPool} and invoke
+ * the module's functions directly with their arguments, so no state is shared
+ * between concurrent calls. The Java fallback runs on the caller's thread.
+ */
+public class PythonMangaDexBackend implements MangaDexBackend {
+    private static final Logger logger = LogManager.getLogger(PythonMangaDexBackend.class);
+
+    /** Default number of interpreters, overridable with {@code shiori.jython.pool}. */
+    private static final int DEFAULT_POOL_SIZE = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final MangaDexBackend fallback;
+    private final PythonInterpreterPool pool;
+
+    public PythonMangaDexBackend(MangaDexBackend fallback) {
+        this.fallback = fallback;
+        this.pool = new PythonInterpreterPool(Math.max(1, Integer.getInteger("shiori.jython.pool", DEFAULT_POOL_SIZE)));
+    }
+
+    private static void pythonFault(Exception e) {
+        JOptionPane.showMessageDialog(
+                null,
+                "Python fault: " + e.getMessage(),
+                "Error",
+                JOptionPane.ERROR_MESSAGE
+        );
+        throw new UhOhPythonDied(null, null) {};
+    }
+
+    /**
+     * Call {@code mangadex_api.<function>(args...)} and return its result as JSON.
+     * @return the parsed result, or null if the function returned a falsy value
+     */
+    private JsonNode callPython(String function, Object... args) throws Exception {
+        String json = pool.withInterpreter(interpreter -> {
+            PyObject[] pyArgs = new PyObject[args.length];
+            for (int i = 0; i < args.length; i++) {
+                pyArgs[i] = Py.java2py(args[i]);
+            }
+
+            PyObject result = interpreter.get("mangadex_api").__getattr__(function).__call__(pyArgs);
+            if (result == null || !result.__nonzero__()) {
+                return null;
+            }
+            return interpreter.get("json").__getattr__("dumps").__call__(result).toString();
+        });
+        return json != null ? mapper.readTree(json) : null;
+    }
+
+    @Override
+    public List<Manga> searchManga(String title, boolean nsfwEnabled) throws Exception {
+        try {
+            JsonNode root = callPython("search_manga", title, nsfwEnabled);
+            if (root != null) {
+                List<Manga> result = new ArrayList<>();
+
+                for (JsonNode node : root) {
+                    String id = node.get("id").asText();
+                    String mangaTitle = node.get("title").asText();
+                    result.add(new Manga(id, mangaTitle));
+                }
+
+                if (!result.isEmpty()) {
+                    return result;
+                }
+            }
+        } catch (Exception e) {
+            pythonFault(e);
+        }
+
+        logger.debug("looks like java took control...");
+        return fallback.searchManga(title, nsfwEnabled);
+    }
+
+    @Override
+    public Optional<Manga> getManga(String mangaId) throws Exception {
+        try {
+            JsonNode node = callPython("get_manga", mangaId);
+            if (node != null) {
+                String id = node.get("id").asText();
+                String mangaTitle = node.get("title").asText();
+                return Optional.of(new Manga(id, mangaTitle));
+            }
+        } catch (Exception e) {
+            pythonFault(e);
+        }
+
+        return fallback.getManga(mangaId);
+    }
+
+    @Override
+    public void streamChapters(String mangaId, boolean nsfwEnabled, Consumer<List<Chapter>> onBatch) throws Exception {
+        ChapterPager.ChapterPage first = getChapterPage(mangaId, nsfwEnabled, 0, ChapterPager.PAGE_SIZE);
+        if (first == null) {
+            fallback.streamChapters(mangaId, nsfwEnabled, onBatch);
+            return;
+        }
+
+        // Later pages run on other pooled interpreters in parallel
+        ChapterPager.stream((offset, limit) -> offset == 0
+                ? first
+                : getChapterPage(mangaId, nsfwEnabled, offset, limit), onBatch);
+    }
+
+    /**
+     * @return the page, or null if Python returned nothing for the first page
+     */
+    private ChapterPager.ChapterPage getChapterPage(String mangaId, boolean nsfwEnabled, int offset, int limit) {
+        try {
+            JsonNode root = callPython("get_chapters_page", mangaId, nsfwEnabled, limit, offset);
+            if (root != null) {
+                List<Chapter> result = new ArrayList<>();
+
+                for (JsonNode node : root.path("chapters")) {
+                    String id = node.get("id").asText();
+                    String chapterTitle = node.get("title").asText("");
+                    String chapterNumber = node.get("number").asText("");
+                    result.add(new Chapter(id, chapterTitle, chapterNumber));
+                }
+
+                if (!result.isEmpty() || offset > 0) {
+                    return new ChapterPager.ChapterPage(root.path("total").asInt(result.size()), result);
+                }
+            }
+        } catch (Exception e) {
+            pythonFault(e);
+        }
+        return null;
+    }
+
+    @Override
+    public List<String> getPageUrls(String chapterId) throws Exception {
+        try {
+            JsonNode root = callPython("get_page_urls", chapterId);
+            if (root != null) {
+                List<String> urls = new ArrayList<>();
+
+                for (JsonNode node : root) {
+                    urls.add(node.asText());
+                }
+
+                if (!urls.isEmpty()) {
+                    return urls;
+                }
+            }
+        } catch (Exception e) {
+            pythonFault(e);
+        }
+
+        return fallback.getPageUrls(chapterId);
+    }
+
+    @Override
+    public JsonNode getMangaStats(String mangaId) throws Exception {
+        try {
+            JsonNode stats = callPython("get_manga_stats", mangaId);
+            if (stats != null) {
+                return stats;
+            }
+        } catch (Exception e) {
+            err.println("Python get_manga_stats failed, falling back to Java: " + e.getMessage());
+        }
+
+        return fallback.getMangaStats(mangaId);
+    }
+}
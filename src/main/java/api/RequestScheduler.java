@@ -0,0 +1,346 @@
+package api;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+
+/**
+ * Central gate for all HTTP traffic to MangaDex.
+ * <p>
+ * Every host gets a token bucket. Requests wait for a token in priority
+ * order, so a page on screen never queues behind a prefetch or a stats
+ * lookup. Rate limit headers pause the whole bucket until the server's
+ * window resets, and 429 or 5xx answers from the API are retried with
+ * jittered exponential backoff. Image node answers are returned as they are,
+ * since trying another node is faster than waiting for a broken one.
+ * <p>
+ * A request waits in a {@link Lane}, which can be promoted while it is
+ * queued, e.g. when a page being prefetched scrolls into view.
+ */
+public class RequestScheduler {
+    private static final Logger logger = LogManager.getLogger(RequestScheduler.class);
+
+    /** Request lanes, most urgent first. */
+    public enum Priority {
+        VISIBLE_PAGE,
+        CHAPTER_LIST,
+        PREFETCH,
+        STATS
+    }
+
+    /**
+     * The priority of one request, which may become more urgent while the
+     * request waits for a token.
+     */
+    public static final class Lane {
+        private volatile Priority priority;
+        private volatile Bucket waitingIn;
+
+        public Lane(Priority priority) {
+            this.priority = priority;
+        }
+
+        public Priority priority() {
+            return priority;
+        }
+
+        /**
+         * Raise the lane to {@code priority} if that is more urgent than its current one.
+         */
+        public synchronized void promote(Priority priority) {
+            if (priority.compareTo(this.priority) < 0) {
+                this.priority = priority;
+                Bucket bucket = waitingIn;
+                if (bucket != null) {
+                    bucket.reorder();
+                }
+            }
+        }
+    }
+
+    private static final String API_HOST = "api.mangadex.org";
+    /** MangaDex allows about five requests per second per IP on the API. */
+    private static final double API_RATE = 5;
+    /** Image nodes are not bound by the API limit, but should not be flooded either. */
+    private static final double NODE_RATE = 20;
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long BASE_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private static final RequestScheduler shared = new RequestScheduler();
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Get the process-wide scheduler.
+     * @return the shared RequestScheduler instance
+     */
+    public static RequestScheduler shared() {
+        return shared;
+    }
+
+    /**
+     * Send a request once a token for its host is available, retrying on 429 and 5xx.
+     * @return the final response, which may still carry an error status
+     */
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler, Priority priority)
+            throws IOException, InterruptedException {
+        return send(request, handler, new Lane(priority), null);
+    }
+
+    /**
+     * Send a request like {@link #send(HttpRequest, HttpResponse.BodyHandler, Priority)}
+     * in a lane that may be promoted while it waits, reporting how long each
+     * attempt's HTTP exchange took.
+     * @param exchangeMillis if not null, called after every attempt with the time spent on
+     *                       the exchange alone, without waits for a token, pauses or backoff;
+     *                       the last call is for the final attempt
+     */
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler, Lane lane,
+                                    LongConsumer exchangeMillis) throws IOException, InterruptedException {
+        Bucket bucket = bucketFor(request.uri().getHost());
+        // PageDownloader fails over to other nodes on its own
+        int maxAttempts = API_HOST.equals(request.uri().getHost()) ? MAX_ATTEMPTS : 1;
+
+        for (int attempt = 1; ; attempt++) {
+            bucket.acquire(lane);
+            HttpResponse<T> response;
+            long start = System.nanoTime();
+            try {
+                response = sendInterruptibly(request, handler);
+            } finally {
+                if (exchangeMillis != null) {
+                    exchangeMillis.accept((System.nanoTime() - start) / 1_000_000);
+                }
+            }
+            int status = response.statusCode();
+
+            long pauseMillis = rateLimitPause(response.headers());
+            if (pauseMillis > 0) {
+                bucket.pause(pauseMillis);
+            }
+
+            boolean retryable = status == 429 || status >= 500;
+            if (!retryable || attempt >= maxAttempts) {
+                return response;
+            }
+
+            discard(response);
+            long backoff = Math.max(pauseMillis, jitteredBackoff(attempt));
+            if (status == 429) {
+                // Everyone sharing the bucket has to slow down, not just this request
+                bucket.pause(backoff);
+            }
+            logger.warn("HTTP {} for {}, retrying in {} ms (attempt {}/{})",
+                    status, request.uri(), backoff, attempt, maxAttempts);
+            Thread.sleep(backoff);
+        }
+    }
+
+    /**
+     * Release the body of a response that is not handed to the caller, e.g. a streamed one.
+     */
+    static void discard(HttpResponse<?> response) {
+        if (response.body() instanceof AutoCloseable body) {
+            try {
+                body.close();
+            } catch (Exception ignored) {
+                // Nothing left to clean up
+            }
+        }
+    }
+
+    /**
+     * Send on the shared client, aborting the exchange if the calling thread
+     * is interrupted so cancelled loads stop using bandwidth right away.
+     */
+    private static <T> HttpResponse<T> sendInterruptibly(HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        CompletableFuture<HttpResponse<T>> exchange = SharedHttpClient.get().sendAsync(request, handler);
+        try {
+            return exchange.get();
+        } catch (InterruptedException e) {
+            exchange.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private Bucket bucketFor(String host) {
+        String key = host == null ? "" : host;
+        return buckets.computeIfAbsent(key, h -> new Bucket(h.equals(API_HOST) ? API_RATE : NODE_RATE));
+    }
+
+    static long jitteredBackoff(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt, 16));
+        // Jitter keeps clients that failed together from retrying together
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    /**
+     * How long the server asked us to back off, in milliseconds, or zero.
+     */
+    static long rateLimitPause(HttpHeaders headers) {
+        long now = System.currentTimeMillis();
+
+        var retryAfter = headers.firstValue("Retry-After");
+        if (retryAfter.isPresent()) {
+            String value = retryAfter.get().trim();
+            try {
+                return Math.max(0, Long.parseLong(value) * 1000);
+            } catch (NumberFormatException e) {
+                try {
+                    return Math.max(0, ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME)
+                            .toInstant().toEpochMilli() - now);
+                } catch (DateTimeParseException ignored) {
+                    // Fall through to the X-RateLimit headers
+                }
+            }
+        }
+
+        // MangaDex reports the end of the current window as epoch seconds
+        long remaining = headers.firstValueAsLong("X-RateLimit-Remaining").orElse(Long.MAX_VALUE);
+        if (remaining <= 0) {
+            var reset = headers.firstValueAsLong("X-RateLimit-Retry-After");
+            if (reset.isPresent()) {
+                return Math.max(0, Instant.ofEpochSecond(reset.getAsLong()).toEpochMilli() - now);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Token bucket whose waiters are served by priority, then arrival order.
+     * Priorities are read when the head is chosen, so a promoted lane moves up at once.
+     */
+    static final class Bucket {
+        private final double ratePerNano;
+        private final double capacity;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private final List<Waiter> waiters = new ArrayList<>();
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+        private long pausedUntil = lastRefill;
+        private long sequence = 0;
+
+        private record Waiter(Lane lane, long order) {
+            boolean before(Waiter other) {
+                int byPriority = lane.priority().compareTo(other.lane.priority());
+                return byPriority != 0 ? byPriority < 0 : order < other.order;
+            }
+        }
+
+        Bucket(double ratePerSecond) {
+            this.ratePerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = Math.max(1, ratePerSecond);
+            this.tokens = capacity;
+        }
+
+        void acquire(Priority priority) throws InterruptedException {
+            acquire(new Lane(priority));
+        }
+
+        void acquire(Lane lane) throws InterruptedException {
+            lock.lock();
+            try {
+                Waiter me = new Waiter(lane, sequence++);
+                waiters.add(me);
+                lane.waitingIn = this;
+                // A new head may need to start its own timed wait
+                changed.signalAll();
+                try {
+                    while (true) {
+                        long now = System.nanoTime();
+                        refill(now);
+                        if (head() != me) {
+                            changed.await();
+                            continue;
+                        }
+                        long waitNanos = Math.max(pausedUntil - now,
+                                tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / ratePerNano));
+                        if (waitNanos <= 0) {
+                            tokens -= 1;
+                            return;
+                        }
+                        changed.awaitNanos(waitNanos);
+                    }
+                } finally {
+                    lane.waitingIn = null;
+                    waiters.remove(me);
+                    changed.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Let waiters choose the head again after a lane was promoted.
+         */
+        void reorder() {
+            lock.lock();
+            try {
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Waiter head() {
+            Waiter head = null;
+            for (Waiter waiter : waiters) {
+                if (head == null || waiter.before(head)) {
+                    head = waiter;
+                }
+            }
+            return head;
+        }
+
+        void pause(long millis) {
+            lock.lock();
+            try {
+                long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+                if (until - pausedUntil > 0) {
+                    pausedUntil = until;
+                }
+                tokens = 0;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void refill(long now) {
+            // No tokens accrue while paused, so a pause is not followed by a burst
+            long from = lastRefill - pausedUntil < 0 ? pausedUntil : lastRefill;
+            if (now - from > 0) {
+                tokens = Math.min(capacity, tokens + (now - from) * ratePerNano);
+            }
+            lastRefill = now;
+        }
+    }
+}
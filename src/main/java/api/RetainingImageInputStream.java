@@ -0,0 +1,98 @@
+package api;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * An image input stream that reads its source lazily and keeps every byte
+ * in one growing array. The decoder reads from that array while it is still
+ * filling up, and once the body is complete the same array is what goes to
+ * the disk cache, so a streamed page is held in memory only once.
+ */
+final class RetainingImageInputStream extends ImageInputStreamImpl {
+    private static final int CHUNK = 16 * 1024;
+
+    private final InputStream source;
+    private byte[] buffer;
+    private int length;
+    private boolean exhausted;
+
+    /**
+     * Read lazily from {@code source}. The source is not closed with this stream.
+     */
+    RetainingImageInputStream(InputStream source) {
+        this.source = source;
+        this.buffer = new byte[CHUNK];
+    }
+
+    /**
+     * Read from bytes that are already complete, without copying them.
+     */
+    RetainingImageInputStream(byte[] data) {
+        this.source = InputStream.nullInputStream();
+        this.buffer = data;
+        this.length = data.length;
+        this.exhausted = true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (!fill(streamPos)) {
+            return -1;
+        }
+        return buffer[(int) streamPos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkClosed();
+        if (len == 0) {
+            return 0;
+        }
+        bitOffset = 0;
+        if (!fill(streamPos)) {
+            return -1;
+        }
+        int n = (int) Math.min(len, length - streamPos);
+        System.arraycopy(buffer, (int) streamPos, b, off, n);
+        streamPos += n;
+        return n;
+    }
+
+    @Override
+    public long length() {
+        return exhausted ? length : -1;
+    }
+
+    /**
+     * Read the rest of the source, e.g. trailing metadata the decoder did not need.
+     * @return every byte of the source
+     */
+    byte[] drain() throws IOException {
+        fill(Long.MAX_VALUE);
+        return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Read from the source until the byte at {@code position} is buffered or the source ends.
+     * @return whether the byte at {@code position} is available
+     */
+    private boolean fill(long position) throws IOException {
+        while (position >= length && !exhausted) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + CHUNK));
+            }
+            int n = source.read(buffer, length, buffer.length - length);
+            if (n < 0) {
+                exhausted = true;
+            } else {
+                length += n;
+            }
+        }
+        return position < length;
+    }
+}
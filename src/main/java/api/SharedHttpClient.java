@@ -0,0 +1,30 @@
+package api;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+/**
+ * The one {@link HttpClient} used for all network traffic, so every request
+ * shares a single connection pool. HTTP/2 lets concurrent requests to the
+ * same host multiplex over one connection.
+ */
+public final class SharedHttpClient {
+
+    /** User agent sent with every request. */
+    public static final String USER_AGENT = "Shiori/1.0";
+
+    private static final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofSeconds(10))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    private SharedHttpClient() {
+    }
+
+    public static HttpClient get() {
+        return client;
+    }
+}
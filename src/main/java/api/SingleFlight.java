@@ -0,0 +1,75 @@
+package api;
+
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Collapses concurrent calls for the same key into one.
+ * The first caller runs the work; callers arriving while it is in flight
+ * wait for and share its result. Nothing is remembered once the call ends,
+ * caching is left to the caller.
+ * <p>
+ * If the running call was interrupted, e.g. because its reader was
+ * cancelled, waiting callers that are still interested retry instead of
+ * inheriting the interruption.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public V run(K key, Callable<V> work) throws Exception {
+        while (true) {
+            CompletableFuture<V> mine = new CompletableFuture<>();
+            CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+
+            if (running == null) {
+                try {
+                    V value = work.call();
+                    mine.complete(value);
+                    return value;
+                } catch (Throwable t) {
+                    mine.completeExceptionally(t);
+                    throw t;
+                } finally {
+                    inFlight.remove(key, mine);
+                }
+            }
+
+            try {
+                return running.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (wasInterrupted(cause) && !Thread.currentThread().isInterrupted()) {
+                    continue;
+                }
+                if (cause instanceof Exception exception) {
+                    throw exception;
+                }
+                throw (Error) cause;
+            }
+        }
+    }
+
+    /**
+     * Number of calls currently in flight.
+     */
+    public int size() {
+        return inFlight.size();
+    }
+
+    private static boolean wasInterrupted(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedException
+                    || cause instanceof InterruptedIOException
+                    || cause instanceof CancellationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,30 +1,28 @@
 package bookmark;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import model.Bookmark;
+import storage.Journal;
 
-import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 
 /**
  * Stores bookmarks for manga chapters.
  * Bookmarks are keyed by mangaId, with only one bookmark per manga.
+ * Reads are lock-free and safe from any thread.
  */
 public class BookmarkStore {
-    private final Path file;
-    private final ObjectMapper mapper;
-    private final List<Bookmark> bookmarks = new ArrayList<>();
+    private final Journal<Bookmark> journal;
 
     public BookmarkStore(Path file) {
-        this.file = file;
-        this.mapper = new ObjectMapper()
-                .enable(SerializationFeature.INDENT_OUTPUT);
-        load();
+        this.journal = new Journal<>(file, Bookmark.class, Bookmark::mangaId);
+    }
+
+    /**
+     * Load the bookmarks now rather than on first use.
+     */
+    public void preload() {
+        journal.preload();
     }
 
     /**
@@ -32,17 +30,14 @@ public class BookmarkStore {
      * If a bookmark for this manga already exists, it will be replaced.
      */
     public void add(Bookmark bookmark) {
-        bookmarks.removeIf(b -> Objects.equals(b.mangaId(), bookmark.mangaId()));
-        bookmarks.add(bookmark);
-        save();
+        journal.put(bookmark);
     }
 
-/**
+    /**
      * Remove a bookmark by manga ID.
      */
     public void remove(String mangaId) {
-        bookmarks.removeIf(b -> Objects.equals(b.mangaId(), mangaId));
-        save();
+        journal.remove(mangaId);
     }
 
     /**
@@ -52,10 +47,7 @@ public class BookmarkStore {
      * @return the bookmark if found, null otherwise
      */
     public Bookmark find(String mangaId) {
-        return bookmarks.stream()
-                .filter(b -> Objects.equals(b.mangaId(), mangaId))
-                .findFirst()
-                .orElse(null);
+        return journal.get(mangaId);
     }
 
     /**
@@ -64,30 +56,6 @@ public class BookmarkStore {
      * @return an unmodifiable list of all bookmarks
      */
     public List<Bookmark> all() {
-        return List.copyOf(bookmarks);
-    }
-
-    private void load() {
-        if (!Files.exists(file)) {
-            return;
-        }
-
-        try {
-            Bookmark[] loaded = mapper.readValue(file.toFile(), Bookmark[].class);
-            bookmarks.clear();
-            bookmarks.addAll(List.of(loaded));
-        } catch (IOException e) {
-            System.err.println("Failed to load bookmarks from " + file + ": " + e.getMessage());
-        }
-    }
-
-    private void save() {
-        try {
-            Files.createDirectories(file.getParent());
-            mapper.writeValue(file.toFile(), bookmarks);
-        } catch (IOException e) {
-            System.err.println("Failed to save bookmarks to " + file + ": " + e.getMessage());
-        }
+        return journal.values();
     }
 }
-
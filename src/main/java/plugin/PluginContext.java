@@ -9,10 +9,13 @@ import api.CacheManager;
 import javax.swing.JMenuBar;
 import javax.swing.JMenu;
 import javax.swing.JMenuItem;
+import java.util.Collections;
 import java.util.function.Consumer;
 import java.util.List;
+import java.util.Map;
 import model.Manga;
 import model.Chapter;
+import model.ReadingProgress;
 
 /**
  * Provides plugins with access to application APIs and functionality.
@@ -69,6 +72,24 @@ public class PluginContext {
         return readingProgressStore;
     }
     
+    /**
+     * Get the progress of the chapter of a manga that was read last.
+     * @param mangaId The manga ID
+     * @return The progress, or null if no chapter of the manga was read
+     */
+    public ReadingProgress getLatestProgress(String mangaId) {
+        return readingProgressStore != null ? readingProgressStore.getLatestProgress(mangaId) : null;
+    }
+    
+    /**
+     * Get the progress of every chapter read in a manga.
+     * @param mangaId The manga ID
+     * @return An unmodifiable map from chapter ID to progress
+     */
+    public Map<String, ReadingProgress> getMangaProgress(String mangaId) {
+        return readingProgressStore != null ? readingProgressStore.getMangaProgress(mangaId) : Collections.emptyMap();
+    }
+    
     /**
      * Get the recent mangas store.
      * @return RecentMangasStore instance
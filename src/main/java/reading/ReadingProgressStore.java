@@ -1,44 +1,108 @@
 package reading;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import model.ReadingProgress;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import storage.Journal;
 
-import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Stores reading progress for manga chapters.
  * Progress is keyed by mangaId + ":" + chapterId combination.
+ * <p>
+ * Changes are appended to a {@link Journal}, so saving a page costs the
+ * same however much history there is, and repeated saves of the same page
+ * are not written at all.
+ * <p>
+ * Progress is indexed by manga and then by chapter, with a pointer to the
+ * most recently read chapter of each manga, so per-manga queries never scan
+ * the whole history.
+ * <p>
+ * Changes are serialized, but reads are lock-free: the reader's page
+ * tracking timer and plugin threads never wait behind a save.
+ * <p>
+ * The history is loaded and indexed on first use, or by {@link #preload()}.
  */
 public class ReadingProgressStore {
     private static final Logger logger = LogManager.getLogger(ReadingProgressStore.class);
 
-    private final Path file;
-    private final ObjectMapper mapper;
-    private final Map<String, ReadingProgress> progressMap = new HashMap<>();
+    private final Journal<ReadingProgress> journal;
+    private final Map<String, Map<String, ReadingProgress>> byManga = new ConcurrentHashMap<>();
+    private final Map<String, ReadingProgress> latestByManga = new ConcurrentHashMap<>();
+    private volatile boolean indexed = false;
 
     public ReadingProgressStore(Path file) {
-        this.file = file;
-        this.mapper = new ObjectMapper()
-                .enable(SerializationFeature.INDENT_OUTPUT);
-        load();
+        this.journal = new Journal<>(file, ReadingProgress.class,
+                progress -> generateKey(progress.mangaId(), progress.chapterId()));
+    }
+
+    /**
+     * Load and index the history now rather than on first use.
+     */
+    public void preload() {
+        if (!indexed) {
+            synchronized (this) {
+                if (!indexed) {
+                    for (ReadingProgress progress : journal.values()) {
+                        index(progress);
+                    }
+                    indexed = true;
+                }
+            }
+        }
     }
 
     /**
      * Save reading progress for a specific manga and chapter.
+     * Does nothing if the chapter is already recorded at this page.
      */
-    public void saveProgress(String mangaId, String chapterId, int pageIndex) {
-        String key = generateKey(mangaId, chapterId);
+    public synchronized void saveProgress(String mangaId, String chapterId, int pageIndex) {
+        preload();
+        ReadingProgress previous = getProgress(mangaId, chapterId);
+        if (previous != null && previous.pageIndex() == pageIndex) {
+            return;
+        }
         logger.debug("Saving progress for manga {} chapter {}: page {}", mangaId, chapterId, pageIndex);
-        progressMap.put(key, new ReadingProgress(mangaId, chapterId, pageIndex, System.currentTimeMillis()));
-        save();
+        ReadingProgress progress = new ReadingProgress(mangaId, chapterId, pageIndex, System.currentTimeMillis());
+        journal.put(progress);
+        index(progress);
+    }
+
+    /**
+     * Get the saved progress for a manga and chapter.
+     *
+     * @return the progress, or null if none exists
+     */
+    public ReadingProgress getProgress(String mangaId, String chapterId) {
+        preload();
+        Map<String, ReadingProgress> chapters = byManga.get(mangaId);
+        return chapters != null ? chapters.get(chapterId) : null;
+    }
+
+    /**
+     * Get the progress of every chapter read in a manga.
+     *
+     * @return an unmodifiable map from chapter ID to progress, empty if none exists
+     */
+    public Map<String, ReadingProgress> getMangaProgress(String mangaId) {
+        preload();
+        Map<String, ReadingProgress> chapters = byManga.get(mangaId);
+        return chapters != null ? Collections.unmodifiableMap(new HashMap<>(chapters)) : Collections.emptyMap();
+    }
+
+    /**
+     * Get the progress of the chapter of a manga that was read last.
+     *
+     * @return the progress, or null if no chapter of the manga was read
+     */
+    public ReadingProgress getLatestProgress(String mangaId) {
+        preload();
+        return latestByManga.get(mangaId);
     }
 
     /**
@@ -47,8 +111,7 @@ public class ReadingProgressStore {
      * @return the page index, or 0 if no progress exists
      */
     public int getPageIndex(String mangaId, String chapterId) {
-        String key = generateKey(mangaId, chapterId);
-        ReadingProgress progress = progressMap.get(key);
+        ReadingProgress progress = getProgress(mangaId, chapterId);
         return progress != null ? progress.pageIndex() : 0;
     }
 
@@ -56,82 +119,53 @@ public class ReadingProgressStore {
      * Check if progress exists for a manga and chapter.
      */
     public boolean hasProgress(String mangaId, String chapterId) {
-        String key = generateKey(mangaId, chapterId);
-        return progressMap.containsKey(key);
+        return getProgress(mangaId, chapterId) != null;
     }
 
     /**
      * Clear progress for a specific manga (all chapters).
      */
-    public void clearMangaProgress(String mangaId) {
-        progressMap.keySet().removeIf(key -> key.startsWith(mangaId + ":"));
-        save();
+    public synchronized void clearMangaProgress(String mangaId) {
+        preload();
+        Map<String, ReadingProgress> chapters = byManga.remove(mangaId);
+        latestByManga.remove(mangaId);
+        if (chapters != null) {
+            for (String chapterId : chapters.keySet()) {
+                journal.remove(generateKey(mangaId, chapterId));
+            }
+        }
     }
 
     /**
      * Clear all reading progress.
      */
-    public void clearAll() {
-        progressMap.clear();
-        save();
+    public synchronized void clearAll() {
+        preload();
+        journal.clear();
+        byManga.clear();
+        latestByManga.clear();
     }
 
-    private String generateKey(String mangaId, String chapterId) {
-        return mangaId + ":" + chapterId;
+    /**
+     * Force saved progress to disk now instead of waiting for the batched sync.
+     */
+    public void flush() {
+        journal.sync();
     }
 
-    @SuppressWarnings("unchecked")
-    private void load() {
-        if (!Files.exists(file)) {
-            logger.debug("Progress file {} does not exist, starting with empty progress", file);
+    private void index(ReadingProgress progress) {
+        if (progress.mangaId() == null || progress.chapterId() == null) {
             return;
         }
-
-        try {
-            List<Map<String, Object>> list = mapper.readValue(
-                    file.toFile(),
-                    List.class
-            );
-
-            for (Map<String, Object> item : list) {
-                String mangaId = (String) item.get("mangaId");
-                String chapterId = (String) item.get("chapterId");
-                int pageIndex;
-                if (item.get("pageIndex") instanceof Integer) {
-                    pageIndex = (Integer) item.get("pageIndex");
-                } else if (item.get("pageIndex") instanceof Long) {
-                    pageIndex = ((Long) item.get("pageIndex")).intValue();
-                } else {
-                    pageIndex = 0;
-                }
-
-                long lastReadAt;
-                if (item.get("lastReadAt") instanceof Long) {
-                    lastReadAt = (Long) item.get("lastReadAt");
-                } else if (item.get("lastReadAt") instanceof Integer) {
-                    lastReadAt = ((Integer) item.get("lastReadAt")).longValue();
-                } else {
-                    lastReadAt = System.currentTimeMillis();
-                }
-
-                String key = generateKey(mangaId, chapterId);
-                progressMap.put(key, new ReadingProgress(mangaId, chapterId, pageIndex, lastReadAt));
-            }
-
-            logger.info("Loaded {} reading progress entries from {}", progressMap.size(), file);
-        } catch (IOException e) {
-            logger.error("Failed to load progress from {}, starting with empty progress", file, e);
+        byManga.computeIfAbsent(progress.mangaId(), id -> new ConcurrentHashMap<>())
+                .put(progress.chapterId(), progress);
+        ReadingProgress latest = latestByManga.get(progress.mangaId());
+        if (latest == null || progress.lastReadAt() >= latest.lastReadAt()) {
+            latestByManga.put(progress.mangaId(), progress);
         }
     }
 
-    private void save() {
-        try {
-            Files.createDirectories(file.getParent());
-            mapper.writeValue(file.toFile(), progressMap.values());
-            logger.debug("Saved {} reading progress entries to {}", progressMap.size(), file);
-        } catch (IOException e) {
-            logger.error("Failed to save progress to {}", file, e);
-        }
+    private static String generateKey(String mangaId, String chapterId) {
+        return mangaId + ":" + chapterId;
     }
 }
-
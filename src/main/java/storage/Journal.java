@@ -0,0 +1,560 @@
+package storage;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Crash-safe storage for a keyed collection of records.
+ * <p>
+ * The records are kept in memory. Every change is appended as one JSON line
+ * to a journal next to the snapshot file, so a change costs the same no
+ * matter how many records there are. Appends are fsynced in batches on a
+ * background thread, and once the journal outgrows the records it describes
+ * it is compacted into a new snapshot.
+ * <p>
+ * Compaction rotates the journal aside, replaces the snapshot atomically and
+ * then deletes the rotated journal. Replaying a journal over a snapshot that
+ * already contains it yields the same records, so a crash at any point loses
+ * at most the changes that were not fsynced yet.
+ * <p>
+ * Reads never take a lock. Records are immutable values in a concurrent
+ * map, so a reader sees each record either before or after a change, never
+ * halfway through it, and is not held up by appends or compaction.
+ * <p>
+ * Nothing is read from disk until the journal is first used or
+ * {@link #preload()} is called, so opening one costs nothing at startup.
+ * <p>
+ * Snapshots and journal lines are read and written with Jackson's streaming
+ * parser and generator, binding each record straight to {@code V} without an
+ * intermediate tree or list, so loading allocates little beyond the records.
+ *
+ * @param <V> the record type, serialized with Jackson
+ */
+public class Journal<V> implements Closeable {
+    private static final Logger logger = LogManager.getLogger(Journal.class);
+
+    /** Longest time an appended change waits for its fsync. */
+    static final long SYNC_DELAY_MS = 1000;
+    /** Journals shorter than this are never compacted. */
+    static final int MIN_COMPACT_RECORDS = 256;
+
+    private static final ScheduledExecutorService background = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "journal-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Journals with an open file, weakly held so an unused journal can still be collected. */
+    private static final Set<Journal<?>> openJournals = Collections.newSetFromMap(new WeakHashMap<>());
+
+    static {
+        // One hook for all journals, syncing whatever is still open at exit
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            List<Journal<?>> open;
+            synchronized (openJournals) {
+                open = new ArrayList<>(openJournals);
+            }
+            open.forEach(Journal::close);
+        }, "journal-close"));
+    }
+
+    private final Path snapshotFile;
+    private final Path journalFile;
+    private final Path rotatedFile;
+    private final Class<V> type;
+    private final Function<V, String> keyOf;
+    private final ObjectMapper mapper = new ObjectMapper()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private final ObjectReader valueReader;
+    private final ObjectWriter valueWriter;
+    private final ConcurrentHashMap<String, Versioned<V>> records = new ConcurrentHashMap<>();
+    private final AtomicLong writes = new AtomicLong();
+    private FileChannel channel;
+    private int journalRecords = 0;
+    private boolean compacting = false;
+    private ScheduledFuture<?> pendingSync;
+    private volatile boolean loaded = false;
+    /** Set when an unreadable snapshot could not be moved aside and must not be overwritten. */
+    private boolean snapshotPinned = false;
+
+    /** A record tagged with when it was written, to keep write order in a hash map. */
+    private record Versioned<V>(V value, long version) {
+    }
+
+    /**
+     * Open a journal. The snapshot is loaded and the changes made since are
+     * replayed on first use.
+     * @param snapshotFile the snapshot, a JSON array of records; the journal lives next to it
+     * @param keyOf derives the key that identifies a record
+     */
+    public Journal(Path snapshotFile, Class<V> type, Function<V, String> keyOf) {
+        this.snapshotFile = snapshotFile;
+        this.journalFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".journal");
+        this.rotatedFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".journal.old");
+        this.type = type;
+        this.keyOf = keyOf;
+        this.valueReader = mapper.readerFor(type);
+        this.valueWriter = mapper.writerFor(type);
+    }
+
+    /**
+     * Load the records now rather than on first use.
+     */
+    public void preload() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    load();
+                    loaded = true;
+                }
+            }
+        }
+    }
+
+    public V get(String key) {
+        preload();
+        Versioned<V> versioned = records.get(key);
+        return versioned != null ? versioned.value() : null;
+    }
+
+    /**
+     * Get all records, least recently written first.
+     */
+    public List<V> values() {
+        preload();
+        List<Versioned<V>> snapshot = new ArrayList<>(records.values());
+        snapshot.sort(Comparator.comparingLong(Versioned::version));
+        List<V> values = new ArrayList<>(snapshot.size());
+        for (Versioned<V> versioned : snapshot) {
+            values.add(versioned.value());
+        }
+        return List.copyOf(values);
+    }
+
+    public int size() {
+        preload();
+        return records.size();
+    }
+
+    /**
+     * Add or replace a record. The record becomes the most recently written one.
+     * @throws NullPointerException if the record has no key
+     */
+    public synchronized void put(V value) {
+        preload();
+        String key = Objects.requireNonNull(keyOf.apply(value), "record key");
+        records.put(key, new Versioned<>(value, writes.incrementAndGet()));
+        append("put", null, value);
+    }
+
+    /**
+     * Remove a record.
+     * @return whether a record was removed
+     */
+    public synchronized boolean remove(String key) {
+        preload();
+        if (records.remove(key) == null) {
+            return false;
+        }
+        append("remove", key, null);
+        return true;
+    }
+
+    public synchronized void clear() {
+        preload();
+        records.clear();
+        append("clear", null, null);
+    }
+
+    /**
+     * Force appended changes to disk now instead of waiting for the batched fsync.
+     */
+    public void sync() {
+        FileChannel current;
+        synchronized (this) {
+            if (pendingSync != null) {
+                pendingSync.cancel(false);
+                pendingSync = null;
+            }
+            current = channel;
+        }
+        if (current == null) {
+            return;
+        }
+        try {
+            current.force(false);
+        } catch (ClosedChannelException e) {
+            // Closed by a compaction, which forced it first
+        } catch (IOException e) {
+            logger.error("Failed to sync journal {}", journalFile, e);
+        }
+    }
+
+    /**
+     * Fold the journal into a new snapshot.
+     */
+    public void compact() {
+        preload();
+        List<V> snapshot;
+        synchronized (this) {
+            try {
+                if (snapshotPinned) {
+                    return;
+                }
+                if (Files.exists(rotatedFile)) {
+                    // An earlier compaction did not finish; redo it with the journal held still
+                    compactInPlace();
+                    return;
+                }
+                if (journalRecords == 0) {
+                    return;
+                }
+                closeChannel();
+                Files.move(journalFile, rotatedFile, StandardCopyOption.REPLACE_EXISTING);
+                journalRecords = 0;
+                snapshot = values();
+            } catch (IOException e) {
+                logger.error("Failed to rotate journal {}", journalFile, e);
+                return;
+            } finally {
+                compacting = false;
+            }
+        }
+
+        try {
+            writeSnapshot(snapshot);
+            Files.deleteIfExists(rotatedFile);
+            logger.debug("Compacted {} records into {}", snapshot.size(), snapshotFile);
+        } catch (IOException e) {
+            logger.error("Failed to write snapshot {}", snapshotFile, e);
+        }
+    }
+
+    /**
+     * Sync and close the journal file. Later changes reopen it.
+     */
+    @Override
+    public synchronized void close() {
+        if (pendingSync != null) {
+            pendingSync.cancel(false);
+            pendingSync = null;
+        }
+        try {
+            closeChannel();
+        } catch (IOException e) {
+            logger.error("Failed to close journal {}", journalFile, e);
+        }
+    }
+
+    private void append(String op, String key, V value) {
+        try {
+            if (channel == null) {
+                Files.createDirectories(journalFile.getParent());
+                channel = FileChannel.open(journalFile,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                synchronized (openJournals) {
+                    openJournals.add(this);
+                }
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(formatLine(op, key, value).getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            journalRecords++;
+        } catch (IOException e) {
+            logger.error("Failed to append to journal {}", journalFile, e);
+            return;
+        }
+
+        if (pendingSync == null) {
+            pendingSync = background.schedule(this::sync, SYNC_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+        if (!compacting && !snapshotPinned && journalRecords > Math.max(MIN_COMPACT_RECORDS, records.size())) {
+            compacting = true;
+            background.execute(this::compact);
+        }
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            try {
+                channel.force(false);
+            } finally {
+                channel.close();
+                channel = null;
+                synchronized (openJournals) {
+                    openJournals.remove(this);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the current records as the snapshot and drop both journals.
+     * Must be called with the lock held.
+     */
+    private void compactInPlace() throws IOException {
+        closeChannel();
+        writeSnapshot(values());
+        Files.deleteIfExists(rotatedFile);
+        Files.deleteIfExists(journalFile);
+        journalRecords = 0;
+    }
+
+    private void writeSnapshot(List<V> snapshot) throws IOException {
+        Files.createDirectories(snapshotFile.getParent());
+        Path temp = Files.createTempFile(snapshotFile.getParent(), snapshotFile.getFileName().toString(), ".tmp");
+        try {
+            byte[] data = mapper.writer(SerializationFeature.INDENT_OUTPUT).writeValueAsBytes(snapshot);
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                out.force(true);
+            }
+            try {
+                Files.move(temp, snapshotFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private synchronized void load() {
+        if (Files.exists(snapshotFile)) {
+            try (JsonParser parser = mapper.getFactory().createParser(snapshotFile.toFile())) {
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IOException("expected an array of records");
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    restore(valueReader.readValue(parser));
+                }
+            } catch (IOException e) {
+                logger.error("Failed to load snapshot {}, starting from the journal only", snapshotFile, e);
+                setAsideSnapshot();
+            }
+        }
+
+        boolean interrupted = Files.exists(rotatedFile);
+        replay(rotatedFile);
+        journalRecords = replay(journalFile);
+        sealTail(journalFile);
+
+        if (interrupted && !snapshotPinned) {
+            try {
+                compactInPlace();
+            } catch (IOException e) {
+                logger.error("Failed to finish compacting {}", snapshotFile, e);
+            }
+        }
+        logger.info("Loaded {} records from {}", records.size(), snapshotFile);
+    }
+
+    /**
+     * Move an unreadable snapshot out of the way, so compacting the records
+     * that could be read does not replace it. If it cannot be moved, the
+     * journal is never compacted and keeps growing instead.
+     */
+    private void setAsideSnapshot() {
+        Path aside = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".corrupt");
+        if (Files.exists(aside)) {
+            // Keep the copy from an earlier failure too
+            aside = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".corrupt." + System.currentTimeMillis());
+        }
+        try {
+            Files.move(snapshotFile, aside);
+            logger.warn("Moved unreadable snapshot {} to {}", snapshotFile, aside);
+        } catch (IOException e) {
+            logger.error("Failed to move unreadable snapshot {} aside, not compacting over it", snapshotFile, e);
+            snapshotPinned = true;
+        }
+    }
+
+    /**
+     * Apply the changes recorded in a journal file.
+     * A torn last line, left by a crash mid-append, is skipped.
+     * @return the number of lines read
+     */
+    private int replay(Path journal) {
+        if (!Files.exists(journal)) {
+            return 0;
+        }
+        int lines = 0;
+        try (BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                lines++;
+                try {
+                    apply(line);
+                } catch (IOException e) {
+                    logger.warn("Skipping unreadable journal record in {}: {}", journal, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to replay journal {}", journal, e);
+        }
+        return lines;
+    }
+
+    /**
+     * Make sure a journal ends with a complete line before anything is
+     * appended to it. A torn last line is cut off so the next record does
+     * not run into it and become unreadable too. A last line that was read
+     * fine but lost its newline gets one.
+     */
+    private void sealTail(Path journal) {
+        if (!Files.exists(journal)) {
+            return;
+        }
+        try (FileChannel file = FileChannel.open(journal, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = file.size();
+            if (size == 0 || readByte(file, size - 1) == '\n') {
+                return;
+            }
+            long lineStart = size - 1;
+            while (lineStart > 0 && readByte(file, lineStart - 1) != '\n') {
+                lineStart--;
+            }
+            byte[] lastLine = new byte[(int) (size - lineStart)];
+            ByteBuffer buffer = ByteBuffer.wrap(lastLine);
+            while (buffer.hasRemaining()) {
+                if (file.read(buffer, lineStart + buffer.position()) < 0) {
+                    throw new IOException("unexpected end of file");
+                }
+            }
+            // The line was already replayed if it was readable, so applying it again changes nothing
+            boolean complete;
+            try {
+                apply(new String(lastLine, StandardCharsets.UTF_8));
+                complete = true;
+            } catch (IOException e) {
+                complete = false;
+            }
+            if (complete) {
+                file.write(ByteBuffer.wrap(new byte[]{'\n'}), size);
+            } else {
+                file.truncate(lineStart);
+                journalRecords--;
+                logger.warn("Cut a torn record off the end of {}", journal);
+            }
+            file.force(false);
+        } catch (IOException e) {
+            logger.error("Failed to repair the end of journal {}", journal, e);
+        }
+    }
+
+    private static byte readByte(FileChannel file, long position) throws IOException {
+        ByteBuffer one = ByteBuffer.allocate(1);
+        if (file.read(one, position) != 1) {
+            throw new IOException("unexpected end of file");
+        }
+        return one.get(0);
+    }
+
+    private String formatLine(String op, String key, V value) throws IOException {
+        StringWriter out = new StringWriter();
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("op", op);
+            if (key != null) {
+                generator.writeStringField("key", key);
+            }
+            if (value != null) {
+                generator.writeFieldName("value");
+                valueWriter.writeValue(generator, value);
+            }
+            generator.writeEndObject();
+        }
+        return out.append('\n').toString();
+    }
+
+    /**
+     * Apply one journal line, binding its record directly from the token stream.
+     */
+    private void apply(String line) throws IOException {
+        String op = null;
+        String key = null;
+        V value = null;
+        try (JsonParser parser = mapper.getFactory().createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("expected an object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "op" -> op = parser.getText();
+                    case "key" -> key = parser.getText();
+                    case "value" -> value = valueReader.readValue(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_OBJECT) {
+                throw new IOException("truncated record");
+            }
+        }
+
+        switch (op != null ? op : "") {
+            case "put" -> restore(value);
+            case "remove" -> {
+                if (key == null) {
+                    throw new IOException("remove without a key");
+                }
+                records.remove(key);
+            }
+            case "clear" -> records.clear();
+            default -> throw new IOException("unknown op " + op);
+        }
+    }
+
+    private void restore(V value) {
+        String key = value != null ? keyOf.apply(value) : null;
+        if (key == null) {
+            logger.warn("Skipping record without a key in {}", snapshotFile);
+            return;
+        }
+        records.put(key, new Versioned<>(value, writes.incrementAndGet()));
+    }
+}
@@ -12,10 +12,12 @@ public class ChapterListPanel extends JPanel {
 
     private final DefaultListModel<Chapter> model = new DefaultListModel<>();
     private final JList<Chapter> list = new JList<>(model);
-    private final MangaDexClient api = new MangaDexClient();
+    private final MangaDexClient api;
     private final Consumer<Chapter> onSelect;
+    private SwingWorker<Void, List<Chapter>> currentLoad;
 
-    public ChapterListPanel(Consumer<Chapter> onSelect) {
+    public ChapterListPanel(MangaDexClient api, Consumer<Chapter> onSelect) {
+        this.api = api;
         this.onSelect = onSelect;
 
         setLayout(new BorderLayout());
@@ -31,29 +33,51 @@ public class ChapterListPanel extends JPanel {
     }
 
     public void loadChapters(String mangaId) {
+        if (currentLoad != null) {
+            currentLoad.cancel(true);
+        }
         model.clear();
 
-        new SwingWorker<List<Chapter>, Void>() {
+        // Chapters show up page by page as the feed is walked
+        currentLoad = new SwingWorker<>() {
             @Override
-            protected List<Chapter> doInBackground() throws Exception {
-                return api.getChapters(mangaId);
+            protected Void doInBackground() throws Exception {
+                api.streamChapters(mangaId, false, batch -> {
+                    if (!isCancelled()) {
+                        publish(batch);
+                    }
+                });
+                return null;
             }
 
             @Override
-            protected void done() {
-                try {
-                    List<Chapter> chapters = get();
-                    for (Chapter c : chapters) model.addElement(c);
+            protected void process(List<List<Chapter>> batches) {
+                if (currentLoad != this) {
+                    return;
+                }
+                boolean first = model.isEmpty();
+                for (List<Chapter> batch : batches) {
+                    for (Chapter c : batch) model.addElement(c);
+                }
 
-                    if (!chapters.isEmpty()) {
-                        list.setSelectedIndex(0);
-                    }
+                if (first && !model.isEmpty()) {
+                    list.setSelectedIndex(0);
+                }
+            }
 
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    get();
                 } catch (Exception ex) {
                     ex.printStackTrace();
                 }
             }
-        }.execute();
+        };
+        currentLoad.execute();
     }
 
     public void nextChapter() {
@@ -63,6 +87,18 @@ public class ChapterListPanel extends JPanel {
         }
     }
 
+    /**
+     * Get the chapter after the selected one without selecting it.
+     * @return the next chapter, or null if there is none
+     */
+    public Chapter peekNextChapter() {
+        int index = list.getSelectedIndex();
+        if (index != -1 && index < model.getSize() - 1) {
+            return model.getElementAt(index + 1);
+        }
+        return null;
+    }
+
     public void previousChapter() {
         int index = list.getSelectedIndex();
         if (index > 0) {
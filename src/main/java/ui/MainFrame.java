@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.Executor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import javax.swing.filechooser.FileNameExtensionFilter;
@@ -33,8 +34,12 @@ public class MainFrame extends JFrame {
 
     private static final Logger logger = LogManager.getLogger(MainFrame.class);
 
+    /** Plugin Manager, Manage Libraries and the separator below them. */
+    private static final int PLUGINS_MENU_FIXED_ITEMS = 3;
+
+    // One client shared by every panel and plugin
     private final MangaDexClient api = new MangaDexClient();
-    private final ReaderPanel reader = new ReaderPanel();
+    private final ReaderPanel reader = new ReaderPanel(api);
     private final showOptions options = new showOptions();
     private Manga currentManga;
     private ChapterListPanel chapterList;
@@ -44,12 +49,15 @@ public class MainFrame extends JFrame {
     private RecentMangasStore recentMangasStore;
     private RecentMangasPanel recentMangasPanel;
     
-    // Discord RPC service
-    private DiscordRPCService discordRPCService;
-
-    // Plugin system components
-    private final PluginManager pluginManager;
-    private final LibraryManager libraryManager;
+    // Discord RPC service, started in the background once the window is up
+    private volatile DiscordRPCService discordRPCService;
+    // Guards discordRPCService against the window closing while the service starts
+    private final Object discordLock = new Object();
+    private boolean closing = false;
+
+    // Plugin system components, null until the plugins finished loading
+    private PluginManager pluginManager;
+    private LibraryManager libraryManager;
     private PluginContext pluginContext;
     private JMenu pluginsMenu;
 
@@ -87,26 +95,82 @@ public class MainFrame extends JFrame {
     }
 
     /**
-     * Constructor with plugin system.
+     * Build the window. Only what the first frame needs is done here; see
+     * {@link #finishStartup(Executor)} and {@link #pluginsLoaded(PluginManager, LibraryManager)}
+     * for the rest.
      */
-    public MainFrame(PluginManager pluginManager, LibraryManager libraryManager) {
+    public MainFrame() {
         super("Shiori");
+
+        initializeUI();
+        initializeStores();
+    }
+
+    /**
+     * Run the startup work the window does not need before it appears:
+     * Discord Rich Presence and loading the reading history.
+     * Call on the EDT once the frame is visible.
+     * @param background where the work runs
+     */
+    public void finishStartup(Executor background) {
+        background.execute(this::startDiscordRPC);
+        background.execute(() -> {
+            long start = System.currentTimeMillis();
+            readingProgressStore.preload();
+            bookmarkStore.preload();
+            recentMangasStore.preload();
+            logger.info("Loaded user data in {} ms", System.currentTimeMillis() - start);
+        });
+
+        if (BuildInfo.isPreview()) {
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(
+                    this,
+                    "This is a preview build. Expect bugs",
+                    "Preview Build Warning",
+                    JOptionPane.WARNING_MESSAGE
+            ));
+        }
+    }
+
+    /**
+     * Hook up the plugins once they have been loaded in the background.
+     * Must be called on the EDT.
+     */
+    public void pluginsLoaded(PluginManager pluginManager, LibraryManager libraryManager) {
         this.pluginManager = pluginManager;
         this.libraryManager = libraryManager;
-        
+
         initializePluginContext();
-        initializeUI();
-        initializeStores();
+        populatePluginsMenu();
         setupPluginHooks();
     }
 
+    private void startDiscordRPC() {
+        synchronized (discordLock) {
+            if (closing) {
+                return;
+            }
+        }
+        DiscordRPCService service = new DiscordRPCService();
+        service.start(1402751935466963214L);
+        service.initRpc();
+        synchronized (discordLock) {
+            if (!closing) {
+                discordRPCService = service;
+                return;
+            }
+        }
+        // The window closed while the service was starting, nobody else will stop it
+        service.stop();
+    }
+
     /**
      * Initialize the plugin context for plugins to use.
      */
     private void initializePluginContext() {
         if (pluginManager != null) {
-            CacheManager cacheManager = new CacheManager();
-            cacheManager.setOptions(options);
+            // Share the reader's cache so plugins see the same index
+            CacheManager cacheManager = reader.getCacheManager();
             
             pluginContext = new PluginContext(
                     api,
@@ -131,10 +195,17 @@ public class MainFrame extends JFrame {
         addWindowListener(new java.awt.event.WindowAdapter() {
             @Override
             public void windowClosing(java.awt.event.WindowEvent e) {
-                if (discordRPCService != null) {
-                    discordRPCService.stop();
+                DiscordRPCService service;
+                synchronized (discordLock) {
+                    closing = true;
+                    service = discordRPCService;
+                }
+                if (service != null) {
+                    service.stop();
                     logger.info("Discord RPC service stopped on application close");
                 }
+                // Keep the LRU order of pages read since the last index flush
+                reader.getCacheManager().close();
             }
         });
         setSize(1200, 800);
@@ -150,8 +221,10 @@ public class MainFrame extends JFrame {
         }
 
         chapterList = new ChapterListPanel(
+                api,
                 chapter -> reader.loadChapter(api, chapter, currentManga)
         );
+        reader.setNextChapterSupplier(chapterList::peekNextChapter);
 
         setupMenu();
         SwingUtilities.invokeLater(splash::hide);
@@ -190,6 +263,7 @@ public class MainFrame extends JFrame {
             try {
                 api.getManga(mangaId).ifPresent(manga -> {
                     this.currentManga = manga;
+                    reader.cancelPrefetch();
                     chapterList.loadChapters(manga.id());
                     notifyPluginsMangaLoaded(manga);
                 });
@@ -204,8 +278,9 @@ public class MainFrame extends JFrame {
             }
         }, options);
 
-        MangaListPanel mangaList = new MangaListPanel(manga -> {
+        MangaListPanel mangaList = new MangaListPanel(api, manga -> {
             this.currentManga = manga;
+            reader.cancelPrefetch();
             logger.info("Selected manga: {} (ID: {})", manga.title(), manga.id());
             chapterList.loadChapters(manga.id());
             // Track this manga in recent list
@@ -251,23 +326,8 @@ public class MainFrame extends JFrame {
         split.setDividerLocation(350);
         add(split);
 
-        if (BuildInfo.isPreview()) {
-            JOptionPane.showMessageDialog(
-                    this,
-                    "This is a preview build. Expect bugs",
-                    "Preview Build Warning",
-                    JOptionPane.WARNING_MESSAGE
-            );
-        }
-
         setupZoomKeys();
         setupNavigationKeys();
-        
-        // Initialize and start Discord RPC service
-        discordRPCService = new DiscordRPCService();
-        discordRPCService.start(1402751935466963214L);
-        discordRPCService.initRpc();
-
 
         tabs.setMinimumSize(new Dimension(300, 100));
         reader.setMinimumSize(new Dimension(500, 100));
@@ -310,12 +370,13 @@ public class MainFrame extends JFrame {
      * @param chapter - The current chapter (null if no chapter selected)
      */
     private void updateDiscordRPC(Manga manga, model.Chapter chapter) {
-        if (discordRPCService == null || !discordRPCService.isReady()) {
+        DiscordRPCService service = discordRPCService;
+        if (service == null || !service.isReady()) {
             return;
         }
         
         if (manga == null) {
-            discordRPCService.clearActivity();
+            service.clearActivity();
             return;
         }
         
@@ -326,7 +387,7 @@ public class MainFrame extends JFrame {
             chapterInfo = chapter.title() != null ? chapter.title() : "Chapter " + chapter.number();
         }
         
-        discordRPCService.updateActivity(mangaTitle, chapterInfo, chapter != null);
+        service.updateActivity(mangaTitle, chapterInfo, chapter != null);
         logger.debug("Updated Discord RPC: {} - {}", mangaTitle, chapterInfo);
     }
 
@@ -354,8 +415,8 @@ public class MainFrame extends JFrame {
         JMenu fileMenu = new JMenu("File");
         JMenuItem optionsItem = new JMenuItem("Options");
         optionsItem.addActionListener(e -> {
-            showOptions options = new showOptions();
-            options.showOptions();
+            // Settings the reader only reads when it starts a load are applied once the window closes
+            options.showOptions(reader::applyOptions);
             logger.info("Trying to fire ui.showOptions.ui.showOptions()...");});
         JMenuItem exitItem = new JMenuItem("Exit");
         exitItem.addActionListener(e -> System.exit(0));
@@ -395,31 +456,7 @@ public class MainFrame extends JFrame {
         pluginsMenu.add(librariesItem);
         
         pluginsMenu.addSeparator();
-        
-        // List loaded plugins
-        if (pluginManager != null) {
-            int pluginCount = pluginManager.getPluginCount();
-            JMenuItem pluginsInfoItem = new JMenuItem(
-                    String.format("%d plugin(s) loaded", pluginCount)
-            );
-            pluginsInfoItem.setEnabled(false);
-            pluginsMenu.add(pluginsInfoItem);
-            
-            if (pluginCount > 0) {
-                pluginsMenu.addSeparator();
-                for (ShioriPlugin plugin : pluginManager.getAllPlugins()) {
-                    JMenuItem pluginItem = new JMenuItem(
-                            plugin.getName() + " v" + plugin.getVersion()
-                    );
-                    pluginItem.setEnabled(false);
-                    pluginsMenu.add(pluginItem);
-                }
-            }
-        } else {
-            JMenuItem noPluginsItem = new JMenuItem("No plugins loaded");
-            noPluginsItem.setEnabled(false);
-            pluginsMenu.add(noPluginsItem);
-        }
+        populatePluginsMenu();
         
         menuBar.add(pluginsMenu);
 
@@ -450,6 +487,39 @@ public class MainFrame extends JFrame {
         setJMenuBar(menuBar);
     }
 
+    /**
+     * List the loaded plugins below the fixed entries of the Plugins menu.
+     */
+    private void populatePluginsMenu() {
+        while (pluginsMenu.getMenuComponentCount() > PLUGINS_MENU_FIXED_ITEMS) {
+            pluginsMenu.remove(PLUGINS_MENU_FIXED_ITEMS);
+        }
+
+        if (pluginManager != null) {
+            int pluginCount = pluginManager.getPluginCount();
+            JMenuItem pluginsInfoItem = new JMenuItem(
+                    String.format("%d plugin(s) loaded", pluginCount)
+            );
+            pluginsInfoItem.setEnabled(false);
+            pluginsMenu.add(pluginsInfoItem);
+            
+            if (pluginCount > 0) {
+                pluginsMenu.addSeparator();
+                for (ShioriPlugin plugin : pluginManager.getAllPlugins()) {
+                    JMenuItem pluginItem = new JMenuItem(
+                            plugin.getName() + " v" + plugin.getVersion()
+                    );
+                    pluginItem.setEnabled(false);
+                    pluginsMenu.add(pluginItem);
+                }
+            }
+        } else {
+            JMenuItem loadingItem = new JMenuItem("Loading plugins...");
+            loadingItem.setEnabled(false);
+            pluginsMenu.add(loadingItem);
+        }
+    }
+
     /**
      * Show the plugin manager dialog.
      */
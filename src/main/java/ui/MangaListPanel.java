@@ -12,13 +12,14 @@ public class MangaListPanel extends JPanel {
 
     private final DefaultListModel<Manga> model = new DefaultListModel<>();
     private final JList<Manga> list = new JList<>(model);
-    private final MangaDexClient api = new MangaDexClient();
+    private final MangaDexClient api;
     private final Consumer<Manga> onSelect;
 
     private final JLabel loadingLabel = new JLabel("Searching...", SwingConstants.CENTER);
     private final JTextField searchField = new JTextField("Enter manga name and press ENTER");
 
-    public MangaListPanel(Consumer<Manga> onSelect) {
+    public MangaListPanel(MangaDexClient api, Consumer<Manga> onSelect) {
+        this.api = api;
         this.onSelect = onSelect;
 
         setLayout(new BorderLayout());
@@ -74,7 +75,7 @@ public class MangaListPanel extends JPanel {
 
     // Optional no-arg constructor for testing
     public MangaListPanel() {
-        this(manga -> {});
+        this(new MangaDexClient(), manga -> {});
     }
 
     // --- Loading label helpers ---
@@ -0,0 +1,88 @@
+package ui;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rescales page images to their display size on background threads.
+ * Requests with a lower priority value run first, so pages that are on
+ * screen are scaled before those merely kept around them.
+ */
+public class PageScaler {
+
+    /** Priority for pages that are currently painted. */
+    public static final int VISIBLE = 0;
+    /** Priority for resident pages outside the viewport. */
+    public static final int NEARBY = 1;
+
+    private static final PageScaler shared = new PageScaler();
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final ThreadPoolExecutor executor;
+
+    private PageScaler() {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "page-scaler-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static PageScaler shared() {
+        return shared;
+    }
+
+    /**
+     * Scale {@code source} to {@code size} and hand the result to {@code page} on the EDT.
+     */
+    public void request(PageView page, BufferedImage source, Dimension size, int priority) {
+        executor.execute(new Task(page, source, new Dimension(size), priority, sequence.getAndIncrement()));
+    }
+
+    static BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = scaled.createGraphics();
+
+        // Use bilinear interpolation for a good balance between speed and quality
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+
+        g2d.drawImage(source, 0, 0, width, height, null);
+        g2d.dispose();
+        return scaled;
+    }
+
+    private record Task(PageView page, BufferedImage source, Dimension size, int priority, long order)
+            implements Runnable, Comparable<Task> {
+
+        @Override
+        public void run() {
+            // Skip work the page no longer needs, e.g. after another zoom step
+            if (!page.wantsScaled(source, size)) {
+                return;
+            }
+            BufferedImage scaled = scale(source, size.width, size.height);
+            SwingUtilities.invokeLater(() -> page.setScaledImage(source, size, scaled));
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (priority != other.priority) {
+                return Integer.compare(priority, other.priority);
+            }
+            // Newest first within a priority: it belongs to the latest display size
+            return Long.compare(other.order, order);
+        }
+    }
+}
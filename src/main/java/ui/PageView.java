@@ -0,0 +1,321 @@
+package ui;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A single page in the reader.
+ * The page always knows its size, so it can lay itself out as a placeholder,
+ * but only holds decoded pixels while it is near the visible area.
+ * <p>
+ * Pages wider than the fit width are shown shrunk to it. The decoded image
+ * may be smaller than the page itself, e.g. when it was decoded with
+ * subsampling, and is stretched to the page's size when drawn.
+ * <p>
+ * Scaled copies for the last few display sizes are kept so zooming back and
+ * forth is free. Until the {@link PageScaler} delivers a scaled copy, the
+ * image is drawn scaled by Graphics2D.
+ */
+public class PageView extends JComponent {
+
+    /** Size used for pages whose dimensions are not known yet. */
+    static final Dimension DEFAULT_PAGE_SIZE = new Dimension(800, 1200);
+
+    /** Number of display sizes to keep scaled copies for. */
+    private static final int CACHED_ZOOM_LEVELS = 3;
+    /** Wait before retrying a failed reload, doubled with each further failure. */
+    private static final long RELOAD_BACKOFF_MILLIS = 2000;
+    private static final long MAX_RELOAD_BACKOFF_MILLIS = 60_000;
+
+    private final int pageIndex;
+    private final String url;
+    private int imageWidth;
+    private int imageHeight;
+    private volatile double zoomFactor;
+    private int fitWidth = 0;
+    private boolean sizeKnown = false;
+    private volatile BufferedImage image;
+    private boolean preview = false;
+    private BufferedImage partialImage;
+    private Dimension requestedSize;
+    private int reloadFailures = 0;
+    private long reloadRetryAfter = 0;
+    private final Map<Dimension, BufferedImage> scaledImages = new LinkedHashMap<>(4, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Dimension, BufferedImage> eldest) {
+            return size() > CACHED_ZOOM_LEVELS;
+        }
+    };
+
+    /**
+     * @param pageIndex index of the page in its chapter
+     * @param url where the page can be reloaded from, or null if the image must stay resident
+     * @param size best guess of the page size until the image is known
+     */
+    public PageView(int pageIndex, String url, Dimension size, double zoomFactor) {
+        this.pageIndex = pageIndex;
+        this.url = url;
+        this.imageWidth = size.width;
+        this.imageHeight = size.height;
+        this.zoomFactor = zoomFactor;
+
+        setAlignmentX(Component.CENTER_ALIGNMENT);
+        setBackground(Color.BLACK);
+        setOpaque(true);
+    }
+
+    public int getPageIndex() {
+        return pageIndex;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Whether the page can be released and reloaded later.
+     */
+    public boolean isReleasable() {
+        return url != null;
+    }
+
+    public boolean isResident() {
+        return image != null;
+    }
+
+    /**
+     * Whether a reload may be attempted now, i.e. the last one did not fail recently.
+     */
+    public boolean canReload() {
+        return isReleasable() && System.currentTimeMillis() >= reloadRetryAfter;
+    }
+
+    /**
+     * Record a failed reload, so the page is not retried on every scroll event.
+     */
+    public void reloadFailed() {
+        long backoff = RELOAD_BACKOFF_MILLIS << Math.min(reloadFailures, 5);
+        reloadFailures++;
+        reloadRetryAfter = System.currentTimeMillis() + Math.min(backoff, MAX_RELOAD_BACKOFF_MILLIS);
+    }
+
+    /**
+     * Whether the page was decoded at least once, so its size is real rather than a guess.
+     */
+    public boolean isSizeKnown() {
+        return sizeKnown;
+    }
+
+    /**
+     * Whether the page shows a data-saver copy that should be replaced by the original.
+     */
+    public boolean isPreview() {
+        return preview;
+    }
+
+    /**
+     * Whether a reload would bring a sharper image, e.g. after zooming in on a
+     * subsampled page. Pages capped by the decoder's pixel limit stay below
+     * their display width however often they are reloaded.
+     * @param decodableWidth width the page would be decoded at now
+     */
+    public boolean needsSharperImage(int decodableWidth) {
+        BufferedImage current = image;
+        return current != null && current.getWidth() < decodableWidth;
+    }
+
+    /**
+     * Whether {@code image} is the image the page already shows.
+     */
+    public boolean isShowing(BufferedImage image) {
+        return image != null && this.image == image;
+    }
+
+    /**
+     * Get the unzoomed size of the page.
+     */
+    public Dimension getImageSize() {
+        return new Dimension(imageWidth, imageHeight);
+    }
+
+    /**
+     * Show a decoded image. The page adopts the image's dimensions.
+     */
+    public void setImage(BufferedImage image) {
+        setImage(image, false, image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Show a decoded image of a page of the given full size. The image may be
+     * a data-saver preview, or smaller than the page if it was subsampled.
+     */
+    public void setImage(BufferedImage image, boolean preview, int width, int height) {
+        this.image = image;
+        this.preview = preview;
+        reloadFailures = 0;
+        reloadRetryAfter = 0;
+        partialImage = null;
+        scaledImages.clear();
+        requestedSize = null;
+        setImageSize(width, height);
+        repaint();
+    }
+
+    /**
+     * Show a low resolution rendition of a page that is still downloading.
+     * It is stretched to the page size and ignored once the image is set.
+     */
+    public void setPartialImage(BufferedImage partial) {
+        if (image == null) {
+            partialImage = partial;
+            repaint();
+        }
+    }
+
+    /**
+     * Record the page's dimensions without keeping its pixels.
+     */
+    public void setImageSize(int width, int height) {
+        sizeKnown = true;
+        if (width != imageWidth || height != imageHeight) {
+            imageWidth = width;
+            imageHeight = height;
+            revalidate();
+        }
+    }
+
+    /**
+     * Drop the decoded pixels and fall back to drawing a placeholder.
+     */
+    public void release() {
+        if (isReleasable()) {
+            image = null;
+            preview = false;
+            partialImage = null;
+            scaledImages.clear();
+            requestedSize = null;
+            repaint();
+        }
+    }
+
+    public void setZoomFactor(double zoomFactor) {
+        if (this.zoomFactor != zoomFactor) {
+            this.zoomFactor = zoomFactor;
+            revalidate();
+            repaint();
+        }
+    }
+
+    /**
+     * Shrink pages wider than {@code fitWidth} to that width before zooming.
+     * @param fitWidth the width, or 0 to show pages at their full size
+     */
+    public void setFitWidth(int fitWidth) {
+        if (this.fitWidth != fitWidth) {
+            this.fitWidth = fitWidth;
+            revalidate();
+            repaint();
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        double scale = zoomFactor;
+        if (fitWidth > 0 && imageWidth > fitWidth) {
+            scale *= (double) fitWidth / imageWidth;
+        }
+        return new Dimension(
+                Math.max(1, (int) (imageWidth * scale)),
+                Math.max(1, (int) (imageHeight * scale))
+        );
+    }
+
+    @Override
+    public Dimension getMaximumSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+
+        Dimension size = getPreferredSize();
+        int x = (getWidth() - size.width) / 2;
+
+        if (image == null && partialImage != null) {
+            Graphics2D g2d = (Graphics2D) g.create();
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.drawImage(partialImage, x, 0, size.width, size.height, null);
+            g2d.dispose();
+            return;
+        }
+
+        if (image == null) {
+            g.setColor(Color.DARK_GRAY);
+            g.drawRect(x, 0, size.width - 1, size.height - 1);
+            g.drawString("Page " + (pageIndex + 1), x + 10, 20);
+            return;
+        }
+
+        if (image.getWidth() == size.width && image.getHeight() == size.height) {
+            g.drawImage(image, x, 0, null);
+            return;
+        }
+
+        BufferedImage scaled = scaledImages.get(size);
+        if (scaled != null) {
+            g.drawImage(scaled, x, 0, null);
+            return;
+        }
+
+        // Draw the image scaled on the fly until the background copy is ready
+        Graphics2D g2d = (Graphics2D) g.create();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.drawImage(image, x, 0, size.width, size.height, null);
+        g2d.dispose();
+        requestScale(PageScaler.VISIBLE);
+    }
+
+    /**
+     * Ask the {@link PageScaler} for a copy at the current display size,
+     * unless one exists or is already on its way.
+     */
+    public void requestScale(int priority) {
+        BufferedImage source = image;
+        Dimension size = getPreferredSize();
+        if (source == null || size.equals(requestedSize) || scaledImages.containsKey(size)
+                || (source.getWidth() == size.width && source.getHeight() == size.height)) {
+            return;
+        }
+        requestedSize = size;
+        PageScaler.shared().request(this, source, size, priority);
+    }
+
+    /**
+     * Whether a scaled copy of {@code source} at {@code size} is still useful.
+     * Called from scaler threads.
+     */
+    boolean wantsScaled(BufferedImage source, Dimension size) {
+        return source == image && size.equals(getPreferredSize());
+    }
+
+    /**
+     * Accept a scaled copy from the {@link PageScaler}. Called on the EDT.
+     */
+    void setScaledImage(BufferedImage source, Dimension size, BufferedImage scaled) {
+        if (size.equals(requestedSize)) {
+            requestedSize = null;
+        }
+        if (source != image) {
+            return;
+        }
+        scaledImages.put(size, scaled);
+        if (size.equals(getPreferredSize())) {
+            repaint();
+        }
+    }
+}
@@ -1,21 +1,33 @@
 package ui;
 
+import api.ApiResponseCache;
+import api.AtHomeNodes;
 import api.CacheManager;
+import api.ChapterPrefetcher;
+import api.ImageMemoryCache;
 import api.MangaDexClient;
+import api.PagePipeline;
 import model.Chapter;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.InputStream;
-import java.net.URL;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import javax.imageio.ImageIO;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -23,28 +35,48 @@ public class ReaderPanel extends JPanel {
 
     private static final Logger logger = LogManager.getLogger(ReaderPanel.class);
 
+    /** Pages kept decoded above and below the visible ones. */
+    private static final int RESIDENT_MARGIN = 3;
+
     private final JPanel pagesPanel;
     private final JLabel statusLabel = new JLabel(" ", SwingConstants.CENTER);
     private final CacheManager cacheManager = new CacheManager();
     private final showOptions options = new showOptions();
-    private SwingWorker<Void, ImageIcon> currentWorker;
+    private SwingWorker<Void, LoadedPage> currentWorker;
     private double zoomFactor = 1.0;
+    /** Width that wider pages are shrunk to, the viewport width once it is known. */
+    private int fitWidth = 0;
+    private int zoomLevel = 0;
     private final Timer zoomTimer;
     private model.Chapter currentChapter;
     private model.Manga currentManga;
     private reading.ReadingProgressStore readingProgressStore;
     private bookmark.BookmarkStore bookmarkStore;
-    private final api.MangaDexClient api = new api.MangaDexClient();
+    private final MangaDexClient api;
     private DefaultListModel<String> bookmarksListModel = new  DefaultListModel<>();
     private JList<String> bookmarksList = new JList<>(bookmarksListModel);
     private int currentPageIndex = 0;
     private final Timer pageTrackingTimer;
     private JScrollPane currentScrollPane;
     private boolean isLoading = true;
+    private final ChapterPrefetcher prefetcher;
+    private Supplier<Chapter> nextChapterSupplier;
+    private final PagePipeline pagePipeline;
+    private final ExecutorService pageReloader = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<PageView, Future<?>> pendingReloads = new HashMap<>();
+    private int pageGeneration = 0;
+
+    /** A decoded page handed from the loader to the EDT. */
+    private record LoadedPage(int index, PagePipeline.Page page) {
+    }
+
+    public ReaderPanel(MangaDexClient api) {
+        this.api = api;
 
-    public ReaderPanel() {
         // Initialize cache manager with options
         cacheManager.setOptions(options);
+        pagePipeline = new PagePipeline(cacheManager, ImageMemoryCache.shared(), options.getPageConcurrency());
+        prefetcher = new ChapterPrefetcher(cacheManager, ImageMemoryCache.shared(), options.getPrefetchPageCount());
         
         setLayout(new BorderLayout());
 
@@ -62,6 +94,7 @@ public class ReaderPanel extends JPanel {
             public void actionPerformed(ActionEvent e) {
                 updateCurrentPageIndex();
                 savePageProgress();
+                prefetchNextChapterIfNeeded();
             }
         });
         pageTrackingTimer.setRepeats(true);
@@ -78,6 +111,13 @@ public class ReaderPanel extends JPanel {
         currentScrollPane = new JScrollPane(pagesPanel);
         currentScrollPane.getVerticalScrollBar().setUnitIncrement(16);
         currentScrollPane.setBorder(null);
+        currentScrollPane.getViewport().addChangeListener(e -> updateResidentPages());
+        currentScrollPane.getViewport().addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                updateFitWidth();
+            }
+        });
 
         currentScrollPane.addMouseWheelListener(new MouseWheelListener() {
             @Override
@@ -96,6 +136,15 @@ public class ReaderPanel extends JPanel {
         add(currentScrollPane, BorderLayout.CENTER);
     }
 
+    /**
+     * Pick up changed options: cache size, parallel page downloads and the number of pages to prefetch.
+     */
+    public void applyOptions() {
+        cacheManager.setOptions(options);
+        pagePipeline.setConcurrency(options.getPageConcurrency());
+        prefetcher.setPageCount(options.getPrefetchPageCount());
+    }
+
     public void setReadingProgressStore(reading.ReadingProgressStore store) {
         this.readingProgressStore = store;
     }
@@ -104,6 +153,20 @@ public class ReaderPanel extends JPanel {
         this.bookmarkStore = store;
     }
 
+    /**
+     * Set where the reader asks for the chapter to prefetch once the current one is mostly read.
+     */
+    public void setNextChapterSupplier(Supplier<Chapter> supplier) {
+        this.nextChapterSupplier = supplier;
+    }
+
+    /**
+     * Cancel any running prefetch, e.g. because the user switched manga.
+     */
+    public void cancelPrefetch() {
+        prefetcher.cancel();
+    }
+
     public void addBookmark() {
         logger.info("Attempting to add bookmark");
         if (bookmarkStore == null) {
@@ -136,6 +199,10 @@ public class ReaderPanel extends JPanel {
     }
 
     public void clearPages() {
+        pageGeneration++;
+        cancelPageLoad();
+        pendingReloads.values().forEach(f -> f.cancel(true));
+        pendingReloads.clear();
         pagesPanel.removeAll();
         pagesPanel.revalidate();
         pagesPanel.repaint();
@@ -157,53 +224,62 @@ public class ReaderPanel extends JPanel {
         // Get saved page index before loading
         final int savedPageIndex = getSavedPageIndex(manga.id(), chapter.id());
 
+        startPageLoad(api, chapter, savedPageIndex);
+    }
+
+    /**
+     * Fetch the chapter's pages through the page pipeline. Placeholders for
+     * every page are added up front and filled in as pages arrive, restoring
+     * {@code restorePageIndex} once done.
+     */
+    private void startPageLoad(MangaDexClient api, Chapter chapter, int restorePageIndex) {
+        cancelPageLoad();
+        final int generation = pageGeneration;
+
         currentWorker = new SwingWorker<>() {
             @Override
             protected Void doInBackground() throws Exception {
-                List<String> pageUrls = api.getPageUrls(chapter.id());
-                int total = pageUrls.size();
-                int current = 0;
-                for (String url : pageUrls) {
-                    if (isCancelled()) break;
-
-                    BufferedImage image;
-                    if (cacheManager.isCached(url)) {
-                        byte[] data = cacheManager.getFromCache(url);
-                        try (InputStream in = new ByteArrayInputStream(data)) {
-                            image = ImageIO.read(in);
-                        }
-                    } else {
-                        try (InputStream in = new URL(url).openStream()) {
-                            byte[] data = in.readAllBytes();
-                            cacheManager.saveToCache(url, data);
-                            try (InputStream imageIn = new ByteArrayInputStream(data)) {
-                                image = ImageIO.read(imageIn);
-                            }
-                        }
+                List<String> prefetched = prefetcher.getPageUrls(chapter.id());
+                List<String> originals = prefetched != null ? prefetched : api.getPageUrls(chapter.id());
 
+                // In data-saver mode every page is read compressed and never upgraded
+                boolean dataSaver = options.isDataSaverEnabled();
+                final List<String> pageUrls = dataSaver ? toDataSaverUrls(originals) : originals;
+                SwingUtilities.invokeLater(() -> addPlaceholders(generation, pageUrls));
 
+                int total = pageUrls.size();
+                pagePipeline.load(pageUrls, !dataSaver, (index, page) -> {
+                    if (page != null) {
+                        publish(new LoadedPage(index, page));
                     }
 
-                    current++;
-                    if (image != null) {
-                        publish(new ImageIcon(image));
-                    }
-
-                    final String progressText = String.format("Loading pages: %d / %d", current, total);
+                    final String progressText = String.format("Loading pages: %d / %d", index + 1, total);
                     SwingUtilities.invokeLater(() -> statusLabel.setText(progressText));
-                }
+                }, new StreamingPages(generation), this::isCancelled);
                 return null;
             }
 
             @Override
-            protected void process(List<ImageIcon> icons) {
-                for (ImageIcon icon : icons) {
-                    JLabel label = new JLabel(scaleIcon(icon));
-                    label.putClientProperty("originalIcon", icon);
-                    label.setAlignmentX(Component.CENTER_ALIGNMENT);
-                    label.setBackground(Color.BLACK);
-                    label.setOpaque(true);
-                    pagesPanel.add(label);
+            protected void process(List<LoadedPage> pages) {
+                if (isCancelled() || generation != pageGeneration) {
+                    return;
+                }
+                int[] window = residentWindow();
+                for (LoadedPage loaded : pages) {
+                    if (loaded.index() >= pagesPanel.getComponentCount()) {
+                        continue;
+                    }
+                    PagePipeline.Page page = loaded.page();
+                    PageView view = (PageView) pagesPanel.getComponent(loaded.index());
+                    if (loaded.index() >= window[0] && loaded.index() <= window[1]) {
+                        view.setImage(page.image(), page.preview(), page.width(), page.height());
+                        if (page.preview()) {
+                            // Fetch the original in the background, the preview stays up meanwhile
+                            reloadPage(view);
+                        }
+                    } else {
+                        view.setImageSize(page.width(), page.height());
+                    }
                 }
                 pagesPanel.revalidate();
             }
@@ -215,9 +291,9 @@ public class ReaderPanel extends JPanel {
                     statusLabel.setText("Chapter Loaded: " + chapter.title());
 
                     // Restore saved page position after loading
-                    if (savedPageIndex > 0 && pagesPanel.getComponentCount() > savedPageIndex) {
+                    if (restorePageIndex > 0 && pagesPanel.getComponentCount() > restorePageIndex) {
                         SwingUtilities.invokeLater(() -> {
-                            scrollToPage(savedPageIndex);
+                            scrollToPage(restorePageIndex);
                         });
                     }
 
@@ -230,42 +306,221 @@ public class ReaderPanel extends JPanel {
         currentWorker.execute();
     }
 
-    private ImageIcon scaleIcon(ImageIcon icon) {
-        int width = Math.max(1, (int) (icon.getIconWidth() * zoomFactor));
-        int height = Math.max(1, (int) (icon.getIconHeight() * zoomFactor));
+    /**
+     * Shows pages while they are still downloading: placeholders take the
+     * page's real size as soon as it is known, and pages near the viewport
+     * show partial previews until the full image arrives.
+     */
+    private class StreamingPages implements PagePipeline.PageProgress {
+        private final int generation;
+
+        StreamingPages(int generation) {
+            this.generation = generation;
+        }
+
+        private PageView pageAt(int index) {
+            if (generation != pageGeneration || index >= pagesPanel.getComponentCount()) {
+                return null;
+            }
+            return (PageView) pagesPanel.getComponent(index);
+        }
+
+        @Override
+        public void sized(int index, int width, int height) {
+            SwingUtilities.invokeLater(() -> {
+                PageView view = pageAt(index);
+                if (view != null && !view.isResident()) {
+                    view.setImageSize(width, height);
+                }
+            });
+        }
+
+        @Override
+        public void partial(int index, BufferedImage preview) {
+            SwingUtilities.invokeLater(() -> {
+                PageView view = pageAt(index);
+                int[] window = residentWindow();
+                if (view != null && index >= window[0] && index <= window[1]) {
+                    view.setPartialImage(preview);
+                }
+            });
+        }
+    }
+
+    private static List<String> toDataSaverUrls(List<String> urls) {
+        List<String> result = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            String saverUrl = AtHomeNodes.shared().dataSaverUrl(url);
+            result.add(saverUrl != null ? saverUrl : url);
+        }
+        return result;
+    }
 
-        BufferedImage scaledImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = scaledImage.createGraphics();
+    /**
+     * Stop the running chapter load. Interrupting the worker aborts its
+     * downloads and skips decodes it has not started yet.
+     */
+    private void cancelPageLoad() {
+        if (currentWorker != null) {
+            currentWorker.cancel(true);
+            currentWorker = null;
+        }
+    }
 
-        // Use bilinear interpolation for a good balance between speed and quality
-        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_SPEED);
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+    private void addPlaceholders(int generation, List<String> pageUrls) {
+        if (generation != pageGeneration) {
+            return;
+        }
+        for (int i = 0; i < pageUrls.size(); i++) {
+            PageView page = new PageView(i, pageUrls.get(i), PageView.DEFAULT_PAGE_SIZE, zoomFactor);
+            page.setFitWidth(fitWidth);
+            pagesPanel.add(page);
+        }
+        pagesPanel.revalidate();
+    }
 
-        g2d.drawImage(icon.getImage(), 0, 0, width, height, null);
-        g2d.dispose();
+    /**
+     * Get the range of page indices, inclusive, that should hold decoded images.
+     * @return {first, last}, or {0, -1} when no page is visible
+     */
+    private int[] residentWindow() {
+        Rectangle view = currentScrollPane.getViewport().getViewRect();
+        int first = -1;
+        int last = -1;
+        int count = pagesPanel.getComponentCount();
+        for (int i = 0; i < count; i++) {
+            Rectangle bounds = pagesPanel.getComponent(i).getBounds();
+            if (bounds.y + bounds.height >= view.y && bounds.y <= view.y + view.height) {
+                if (first == -1) {
+                    first = i;
+                }
+                last = i;
+            } else if (first != -1) {
+                break;
+            }
+        }
+        if (first == -1) {
+            return new int[] {0, -1};
+        }
+        return new int[] {Math.max(0, first - RESIDENT_MARGIN), Math.min(count - 1, last + RESIDENT_MARGIN)};
+    }
 
-        return new ImageIcon(scaledImage);
+    /**
+     * Keep pages near the viewport decoded and release all others, so memory
+     * use does not grow with the chapter length.
+     */
+    private void updateResidentPages() {
+        int[] window = residentWindow();
+        for (int i = 0; i < pagesPanel.getComponentCount(); i++) {
+            PageView view = (PageView) pagesPanel.getComponent(i);
+            if (i < window[0] || i > window[1]) {
+                Future<?> reload = pendingReloads.remove(view);
+                if (reload != null) {
+                    reload.cancel(true);
+                }
+                view.release();
+            } else if ((!view.isResident() || view.isPreview()) && view.canReload() && view.isSizeKnown()) {
+                reloadPage(view);
+            }
+        }
     }
 
+    private void reloadPage(PageView view) {
+        if (pendingReloads.containsKey(view) || !view.canReload()) {
+            return;
+        }
+        final int generation = pageGeneration;
+        pendingReloads.put(view, pageReloader.submit(() -> {
+            PagePipeline.Page page = null;
+            try {
+                page = pagePipeline.loadPage(view.getUrl());
+            } catch (InterruptedIOException e) {
+                return;
+            } catch (IOException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                logger.warn("Failed to reload page {}: {}", view.getPageIndex(), e.getMessage());
+            }
+
+            final PagePipeline.Page loaded = page;
+            SwingUtilities.invokeLater(() -> {
+                pendingReloads.remove(view);
+                if (loaded == null && generation == pageGeneration) {
+                    view.reloadFailed();
+                }
+                if (loaded == null || generation != pageGeneration
+                        || (view.isShowing(loaded.image()) && !view.isPreview())) {
+                    // Keep the scaled copies of an image that did not change
+                    return;
+                }
+                int[] window = residentWindow();
+                if (view.getPageIndex() >= window[0] && view.getPageIndex() <= window[1]) {
+                    // Not marked as a preview even after a data-saver fallback, so it is not retried on every scroll
+                    view.setImage(loaded.image(), false, loaded.width(), loaded.height());
+                }
+            });
+        }));
+    }
+
+    // Zoom moves in whole steps of 1.2x so returning to a level yields the exact
+    // same display size, which is what the pages key their scaled copies by
     public void zoomIn() {
-        logger.debug("Zooming in from {} to {}", zoomFactor, zoomFactor * 1.2);
-        zoomFactor *= 1.2;
-        zoomTimer.restart();
+        setZoomLevel(zoomLevel + 1);
     }
 
     public void zoomOut() {
-        logger.debug("Zooming out from {} to {}", zoomFactor, zoomFactor / 1.2);
-        zoomFactor /= 1.2;
-        zoomTimer.restart();
+        setZoomLevel(zoomLevel - 1);
     }
 
     public void resetZoom() {
-        logger.debug("Resetting zoom from {} to 1.0", zoomFactor);
-        zoomFactor = 1.0;
+        setZoomLevel(0);
+    }
+
+    private void setZoomLevel(int level) {
+        double factor = Math.pow(1.2, level);
+        logger.debug("Zooming from {} to {}", zoomFactor, factor);
+        zoomLevel = level;
+        zoomFactor = factor;
+        pagePipeline.setTarget(fitWidth, zoomFactor);
         zoomTimer.restart();
     }
 
+    /**
+     * Fit pages wider than the viewport to its width, and have new pages
+     * decoded at the resolution they will be shown at.
+     */
+    private void updateFitWidth() {
+        int width = currentScrollPane.getViewport().getExtentSize().width;
+        if (width <= 0 || width == fitWidth) {
+            return;
+        }
+        fitWidth = width;
+        pagePipeline.setTarget(fitWidth, zoomFactor);
+        for (Component comp : pagesPanel.getComponents()) {
+            if (comp instanceof PageView page) {
+                page.setFitWidth(fitWidth);
+            }
+        }
+        sharpenResidentPages();
+        pagesPanel.revalidate();
+        pagesPanel.repaint();
+    }
+
+    /**
+     * Reload resident pages that were decoded for a smaller size than they are now shown at.
+     */
+    private void sharpenResidentPages() {
+        for (Component comp : pagesPanel.getComponents()) {
+            if (comp instanceof PageView page && page.isReleasable()) {
+                Dimension size = page.getImageSize();
+                if (page.needsSharperImage(pagePipeline.decodedWidth(size.width, size.height))) {
+                    reloadPage(page);
+                }
+            }
+        }
+    }
+
     public void scrollPage(boolean down) {
         if (currentScrollPane != null) {
             JScrollBar vertical = currentScrollPane.getVerticalScrollBar();
@@ -305,11 +560,23 @@ public class ReaderPanel extends JPanel {
             viewWidth = currentScrollPane.getViewport().getWidth();
         }
 
+        // Rescaling runs on the PageScaler: visible pages first, then the
+        // other resident ones. Until then pages draw the original scaled.
+        Rectangle viewRect = currentScrollPane.getViewport().getViewRect();
         for (Component comp : pagesPanel.getComponents()) {
-            if (comp instanceof JLabel label && label.getClientProperty("originalIcon") instanceof ImageIcon originalIcon) {
-                label.setIcon(scaleIcon(originalIcon));
+            if (comp instanceof PageView page) {
+                page.setZoomFactor(zoomFactor);
+                if (comp.getBounds().intersects(viewRect)) {
+                    page.requestScale(PageScaler.VISIBLE);
+                }
             }
         }
+        for (Component comp : pagesPanel.getComponents()) {
+            if (comp instanceof PageView page && page.isResident()) {
+                page.requestScale(PageScaler.NEARBY);
+            }
+        }
+        sharpenResidentPages();
         pagesPanel.revalidate();
         pagesPanel.repaint();
 
@@ -331,9 +598,15 @@ public class ReaderPanel extends JPanel {
         }
     }
 
+    public CacheManager getCacheManager() {
+        return cacheManager;
+    }
+
     public void clearCache() {
         logger.info("Clearing image cache");
         cacheManager.clearCache();
+        ImageMemoryCache.shared().clear();
+        ApiResponseCache.shared().clear();
         logger.info("Cache cleared successfully");
         JOptionPane.showMessageDialog(this, "Cache cleared successfully.");
     }
@@ -370,6 +643,25 @@ public class ReaderPanel extends JPanel {
         currentPageIndex = closestPageIndex;
     }
 
+    /**
+     * Start prefetching the next chapter once the reader is past the configured point of this one
+     */
+    private void prefetchNextChapterIfNeeded() {
+        if (nextChapterSupplier == null || currentChapter == null || isLoading) {
+            return;
+        }
+
+        int pageCount = pagesPanel.getComponentCount();
+        if (pageCount == 0 || (currentPageIndex + 1) * 100 < pageCount * options.getPrefetchThresholdPercent()) {
+            return;
+        }
+
+        Chapter next = nextChapterSupplier.get();
+        if (next != null) {
+            prefetcher.prefetch(api, next);
+        }
+    }
+
     /**
      * Save current page progress to reading progress store
      */
@@ -452,85 +744,30 @@ public class ReaderPanel extends JPanel {
         scrollToTop();
         statusLabel.setText("Loading chapter: " + chapter.title() + "...");
 
-        currentWorker = new SwingWorker<>() {
-            @Override
-            protected Void doInBackground() throws Exception {
-                List<String> pageUrls = api.getPageUrls(chapter.id());
-                int total = pageUrls.size();
-                int current = 0;
-                for (String url : pageUrls) {
-                    if (isCancelled()) break;
-
-                    BufferedImage image;
-                    if (cacheManager.isCached(url)) {
-                        byte[] data = cacheManager.getFromCache(url);
-                        try (InputStream in = new ByteArrayInputStream(data)) {
-                            image = ImageIO.read(in);
-                        }
-                    } else {
-                        try (InputStream in = new URL(url).openStream()) {
-                            byte[] data = in.readAllBytes();
-                            cacheManager.saveToCache(url, data);
-                            try (InputStream imageIn = new ByteArrayInputStream(data)) {
-                                image = ImageIO.read(imageIn);
-                            }
-                        }
-                    }
-
-                    current++;
-                    if (image != null) {
-                        publish(new ImageIcon(image));
-                    }
-
-                    final String progressText = String.format("Loading pages: %d / %d", current, total);
-                    SwingUtilities.invokeLater(() -> statusLabel.setText(progressText));
-                }
-                return null;
-            }
-
-            @Override
-            protected void process(List<ImageIcon> icons) {
-                for (ImageIcon icon : icons) {
-                    JLabel label = new JLabel(scaleIcon(icon));
-                    label.putClientProperty("originalIcon", icon);
-                    label.setAlignmentX(Component.CENTER_ALIGNMENT);
-                    label.setBackground(Color.BLACK);
-                    label.setOpaque(true);
-                    pagesPanel.add(label);
-                }
-                pagesPanel.revalidate();
-            }
-
-            @Override
-            protected void done() {
-                if (!isCancelled()) {
-                    isLoading = false;
-                    statusLabel.setText("Chapter Loaded: " + chapter.title());
-
-                    // Restore saved page position
-                    if (bookmarkPage > 0 && pagesPanel.getComponentCount() > bookmarkPage) {
-                        SwingUtilities.invokeLater(() -> {
-                            scrollToPage(bookmarkPage);
-                        });
-                    }
-
-                    // Start page tracking
-                    pageTrackingTimer.start();
-                }
-            }
-        };
-
-        currentWorker.execute();
+        startPageLoad(api, chapter, bookmarkPage);
     }
 
 
 
+    /**
+     * Add a page that has no URL to reload it from, e.g. a rendered PDF page.
+     * Such pages stay decoded for as long as they are shown.
+     */
     public void addPage(ImageIcon icon) {
-        JLabel label = new JLabel(scaleIcon(icon));
-        label.putClientProperty("originalIcon", icon);
-        label.setAlignmentX(Component.CENTER_ALIGNMENT);
-        label.setOpaque(true);
-        pagesPanel.add(label);
+        BufferedImage image;
+        if (icon.getImage() instanceof BufferedImage buffered) {
+            image = buffered;
+        } else {
+            image = new BufferedImage(icon.getIconWidth(), icon.getIconHeight(), BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2d = image.createGraphics();
+            icon.paintIcon(null, g2d, 0, 0);
+            g2d.dispose();
+        }
+
+        PageView page = new PageView(pagesPanel.getComponentCount(), null, PageView.DEFAULT_PAGE_SIZE, zoomFactor);
+        page.setFitWidth(fitWidth);
+        page.setImage(image);
+        pagesPanel.add(page);
     }
 
     public void onLoadComplete(String title) {
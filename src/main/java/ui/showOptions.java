@@ -2,54 +2,161 @@ package ui;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.prefs.Preferences;
 
 public class showOptions {
 
     private static final String KEY_CACHE = "cachingEnabled";
     private static final String NSFW_CACHE = "nsfwEnabled";
+    private static final String KEY_PAGE_CONCURRENCY = "pageConcurrency";
+    private static final int DEFAULT_PAGE_CONCURRENCY = 6;
+    private static final String KEY_CACHE_SIZE = "cacheSizeMb";
+    private static final int DEFAULT_CACHE_SIZE_MB = 2048;
+    private static final String KEY_PREFETCH_THRESHOLD = "prefetchThresholdPercent";
+    private static final int DEFAULT_PREFETCH_THRESHOLD = 70;
+    private static final String KEY_PREFETCH_PAGES = "prefetchPageCount";
+    private static final int DEFAULT_PREFETCH_PAGES = 5;
+    private static final String KEY_API_BACKEND = "apiBackend";
+    private static final String DEFAULT_API_BACKEND = "java";
+    private static final String KEY_PAGE_QUALITY = "pageQuality";
+    /** Full quality pages; prefetched pages are still fetched as data-saver and upgraded. */
+    public static final String QUALITY_ORIGINAL = "original";
+    /** Compressed pages only, for metered or slow connections. */
+    public static final String QUALITY_DATA_SAVER = "data-saver";
 
+    // Getters read the preferences on every call, so every instance sees changes made in the window
     private final Preferences prefs =
             Preferences.userNodeForPackage(showOptions.class);
 
-    private boolean iWantCaching;
-    private boolean iAmAGooner;
-
-    public showOptions() {
-        // Load persisted values
-        iWantCaching = prefs.getBoolean(KEY_CACHE, true);
-        iAmAGooner = prefs.getBoolean(NSFW_CACHE, false);
+    /**
+     * Open the options window.
+     */
+    public void showOptions() {
+        showOptions(null);
     }
 
-    public void showOptions() {
-        initOptionsUI();
+    /**
+     * Open the options window.
+     * @param onClose run on the EDT when the window is closed, to apply settings read only once, or null
+     */
+    public void showOptions(Runnable onClose) {
+        JFrame frame = initOptionsUI();
+        if (onClose != null) {
+            frame.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosed(WindowEvent e) {
+                    onClose.run();
+                }
+            });
+        }
     }
 
-    private void initOptionsUI() {
+    private JFrame initOptionsUI() {
         JFrame frame = new JFrame("Options");
         frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
         frame.setLayout(new FlowLayout());
 
-        JCheckBox c1 = new JCheckBox("Enable Caching", iWantCaching);
+        JCheckBox c1 = new JCheckBox("Enable Caching", isCachingEnabled());
 
 
-        c1.addActionListener(e -> {
-            iWantCaching = c1.isSelected();
-            prefs.putBoolean(KEY_CACHE, iWantCaching);
-        });
+        c1.addActionListener(e -> prefs.putBoolean(KEY_CACHE, c1.isSelected()));
 
 
         frame.add(c1);
+
+        JSpinner concurrencySpinner = new JSpinner(new SpinnerNumberModel(getPageConcurrency(), 1, 32, 1));
+        concurrencySpinner.addChangeListener(e ->
+                prefs.putInt(KEY_PAGE_CONCURRENCY, (Integer) concurrencySpinner.getValue()));
+
+        frame.add(new JLabel("Parallel page downloads:"));
+        frame.add(concurrencySpinner);
+
+        JSpinner cacheSizeSpinner = new JSpinner(new SpinnerNumberModel(getCacheSizeMb(), 64, 1024 * 1024, 256));
+        cacheSizeSpinner.addChangeListener(e ->
+                prefs.putInt(KEY_CACHE_SIZE, (Integer) cacheSizeSpinner.getValue()));
+
+        frame.add(new JLabel("Cache size (MB):"));
+        frame.add(cacheSizeSpinner);
+
+        JSpinner prefetchSpinner = new JSpinner(new SpinnerNumberModel(getPrefetchThresholdPercent(), 0, 100, 5));
+        prefetchSpinner.addChangeListener(e ->
+                prefs.putInt(KEY_PREFETCH_THRESHOLD, (Integer) prefetchSpinner.getValue()));
+
+        frame.add(new JLabel("Prefetch next chapter at (% read):"));
+        frame.add(prefetchSpinner);
+
+        JComboBox<String> backendBox = new JComboBox<>(new String[] {"java", "python"});
+        backendBox.setSelectedItem(getApiBackend());
+        backendBox.addActionListener(e -> prefs.put(KEY_API_BACKEND, (String) backendBox.getSelectedItem()));
+
+        frame.add(new JLabel("API backend (restart required):"));
+        frame.add(backendBox);
+
+        JComboBox<String> qualityBox = new JComboBox<>(new String[] {QUALITY_ORIGINAL, QUALITY_DATA_SAVER});
+        qualityBox.setSelectedItem(getPageQuality());
+        qualityBox.addActionListener(e -> prefs.put(KEY_PAGE_QUALITY, (String) qualityBox.getSelectedItem()));
+
+        frame.add(new JLabel("Page quality:"));
+        frame.add(qualityBox);
         frame.pack();
         frame.setLocationRelativeTo(null);
         frame.setVisible(true);
+        return frame;
     }
 
     public boolean isCachingEnabled() {
-        return iWantCaching;
+        return prefs.getBoolean(KEY_CACHE, true);
     }
 
     public boolean isNsfwEnabled() {
-        return iAmAGooner;
+        return prefs.getBoolean(NSFW_CACHE, false);
+    }
+
+    /**
+     * Number of chapter pages the reader downloads at the same time.
+     */
+    public int getPageConcurrency() {
+        return prefs.getInt(KEY_PAGE_CONCURRENCY, DEFAULT_PAGE_CONCURRENCY);
+    }
+
+    /**
+     * Maximum size of the page image cache, in megabytes.
+     */
+    public int getCacheSizeMb() {
+        return prefs.getInt(KEY_CACHE_SIZE, DEFAULT_CACHE_SIZE_MB);
+    }
+
+    /**
+     * How far into a chapter, in percent of its pages, the next chapter starts prefetching.
+     */
+    public int getPrefetchThresholdPercent() {
+        return prefs.getInt(KEY_PREFETCH_THRESHOLD, DEFAULT_PREFETCH_THRESHOLD);
+    }
+
+    /**
+     * Number of pages of the next chapter to prefetch.
+     */
+    public int getPrefetchPageCount() {
+        return prefs.getInt(KEY_PREFETCH_PAGES, DEFAULT_PREFETCH_PAGES);
+    }
+
+    /**
+     * Name of the MangaDex backend to use, "java" or "python".
+     */
+    public String getApiBackend() {
+        return prefs.get(KEY_API_BACKEND, DEFAULT_API_BACKEND);
+    }
+
+    /**
+     * Quality pages are read in, {@link #QUALITY_ORIGINAL} or {@link #QUALITY_DATA_SAVER}.
+     */
+    public String getPageQuality() {
+        return prefs.get(KEY_PAGE_QUALITY, QUALITY_ORIGINAL);
+    }
+
+    public boolean isDataSaverEnabled() {
+        return QUALITY_DATA_SAVER.equals(getPageQuality());
     }
 }
@@ -135,18 +135,25 @@ def get_manga(manga_id):
     return None
 
 
-def get_chapters(manga_id, nsfw_enabled=False):
+CHAPTER_PAGE_SIZE = 100
+CHAPTER_MAX_RESULTS = 10000
+
+
+def get_chapters_page(manga_id, nsfw_enabled=False, limit=CHAPTER_PAGE_SIZE, offset=0):
     """
-    Get list of chapters for a manga.
+    Get one page of chapters for a manga.
 
     Args:
         manga_id: The manga ID
         nsfw_enabled: Whether to include pornographic content rating
+        limit: Number of chapters to return, at most 100
+        offset: Index of the first chapter to return
 
     Returns:
-        List of dicts with 'id', 'title', and 'number' keys
+        Dict with 'total' and 'chapters', a list of dicts with 'id', 'title', and 'number' keys
     """
-    url = "{0}/chapter?manga={1}&translatedLanguage[]=en&order[chapter]=asc".format(API_BASE, manga_id)
+    url = "{0}/chapter?manga={1}&translatedLanguage[]=en&order[chapter]=asc&limit={2}&offset={3}".format(
+        API_BASE, manga_id, limit, offset)
 
     # Add content rating for NSFW
     if nsfw_enabled:
@@ -164,10 +171,38 @@ def get_chapters(manga_id, nsfw_enabled=False):
                 "number": attributes.get("chapter", "")
             })
 
-        return chapters
+        return {"total": root.get("total", len(chapters)), "chapters": chapters}
     except Exception as e:
         sys.stderr.write("Get chapters failed: {0}\n".format(e))
-        return []
+        return {"total": 0, "chapters": []}
+
+
+def get_chapters(manga_id, nsfw_enabled=False):
+    """
+    Get list of chapters for a manga, following every page of the feed.
+
+    Args:
+        manga_id: The manga ID
+        nsfw_enabled: Whether to include pornographic content rating
+
+    Returns:
+        List of dicts with 'id', 'title', and 'number' keys
+    """
+    chapters = []
+    offset = 0
+    total = CHAPTER_PAGE_SIZE
+
+    # MangaDex rejects offset + limit beyond CHAPTER_MAX_RESULTS
+    while offset < min(total, CHAPTER_MAX_RESULTS):
+        page = get_chapters_page(manga_id, nsfw_enabled,
+                                 min(CHAPTER_PAGE_SIZE, CHAPTER_MAX_RESULTS - offset), offset)
+        if not page["chapters"]:
+            break
+        chapters.extend(page["chapters"])
+        total = page["total"]
+        offset += CHAPTER_PAGE_SIZE
+
+    return chapters
 
 
 def get_page_urls(chapter_id):
@@ -0,0 +1,67 @@
+package api;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ApiResponseCacheTest {
+
+    private static final String MANGA_URL = "https://api.mangadex.org/manga/abc";
+
+    @Test
+    public void testFreshEntrySkipsNetworkAcrossInstances() throws Exception {
+        Path dir = Files.createTempDirectory("api-cache");
+        AtomicInteger calls = new AtomicInteger();
+        ApiResponseCache.Fetcher fetcher = (url, cached) -> {
+            calls.incrementAndGet();
+            return new ApiResponseCache.Response(200, "{\"n\":1}".getBytes(StandardCharsets.UTF_8), "\"v1\"", null);
+        };
+
+        ApiResponseCache first = new ApiResponseCache(dir);
+        assertEquals("{\"n\":1}", new String(first.get(MANGA_URL, fetcher), StandardCharsets.UTF_8));
+        first.get(MANGA_URL, fetcher);
+
+        // A new instance reads the entry back from disk
+        ApiResponseCache second = new ApiResponseCache(dir);
+        assertEquals("{\"n\":1}", new String(second.get(MANGA_URL, fetcher), StandardCharsets.UTF_8));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testNodeUrlsAreNeverCached() throws Exception {
+        ApiResponseCache cache = new ApiResponseCache(Files.createTempDirectory("api-cache"));
+        AtomicInteger calls = new AtomicInteger();
+        ApiResponseCache.Fetcher fetcher = (url, cached) -> {
+            calls.incrementAndGet();
+            return new ApiResponseCache.Response(200, new byte[0], null, null);
+        };
+
+        cache.get("https://api.mangadex.org/at-home/server/xyz", fetcher);
+        cache.get("https://api.mangadex.org/at-home/server/xyz", fetcher);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testSweepDropsEntriesPastMaxStale() throws Exception {
+        Path dir = Files.createTempDirectory("api-cache");
+        ApiResponseCache cache = new ApiResponseCache(dir);
+        ApiResponseCache.Fetcher fetcher = (url, cached) ->
+                new ApiResponseCache.Response(200, new byte[0], null, null);
+        cache.get(MANGA_URL, fetcher);
+        cache.get("https://api.mangadex.org/manga?offset=10", fetcher);
+
+        Path old = dir.resolve(CacheManager.digest(MANGA_URL));
+        Files.setLastModifiedTime(old, FileTime.fromMillis(System.currentTimeMillis()
+                - ApiResponseCache.MAX_STALE.plusDays(2).toMillis()));
+        cache.sweep();
+
+        assertFalse(Files.exists(old));
+        assertTrue(Files.exists(dir.resolve(CacheManager.digest("https://api.mangadex.org/manga?offset=10"))));
+    }
+}
@@ -1,9 +1,12 @@
 package api;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -17,6 +20,11 @@ public class CacheManagerTest {
         cacheManager.clearCache();
     }
 
+    @AfterEach
+    public void tearDown() {
+        cacheManager.close();
+    }
+
     @Test
     public void testSaveAndGetFromCache() throws IOException {
         String url = "https://example.com/image.jpg";
@@ -41,4 +49,82 @@ public class CacheManagerTest {
         cacheManager.clearCache();
         assertFalse(cacheManager.isCached(url));
     }
+
+    @Test
+    public void testHashCodeCollisionsDoNotShareEntries() throws IOException {
+        // "Aa" and "BB" have the same String.hashCode()
+        String first = "https://example.com/Aa.jpg";
+        String second = "https://example.com/BB.jpg";
+        assertEquals(first.hashCode(), second.hashCode());
+
+        cacheManager.saveToCache(first, "first".getBytes(StandardCharsets.UTF_8));
+        assertFalse(cacheManager.isCached(second));
+
+        cacheManager.saveToCache(second, "second".getBytes(StandardCharsets.UTF_8));
+        assertArrayEquals("first".getBytes(StandardCharsets.UTF_8), cacheManager.getFromCache(first));
+        assertArrayEquals("second".getBytes(StandardCharsets.UTF_8), cacheManager.getFromCache(second));
+    }
+
+    @Test
+    public void testIndexSurvivesRestart() throws IOException {
+        Path dir = Files.createTempDirectory("shiori-cache");
+        String url = "https://example.com/page.png";
+
+        new CacheManager(dir).saveToCache(url, "page".getBytes(StandardCharsets.UTF_8));
+
+        CacheManager reopened = new CacheManager(dir);
+        assertTrue(reopened.isCached(url));
+        assertArrayEquals("page".getBytes(StandardCharsets.UTF_8), reopened.getFromCache(url));
+
+        // Entries deleted outside the cache are dropped from the index
+        Files.delete(reopened.getCachedFile(url).toPath());
+        assertNull(reopened.getFromCache(url));
+        assertFalse(new CacheManager(dir).isCached(url));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedOverBudget() throws Exception {
+        Path dir = Files.createTempDirectory("shiori-cache");
+        CacheManager cache = new CacheManager(dir);
+        byte[] data = new byte[10];
+
+        cache.saveToCache("https://example.com/1.jpg", data);
+        Thread.sleep(5);
+        cache.saveToCache("https://example.com/2.jpg", data);
+        Thread.sleep(5);
+        cache.saveToCache("https://example.com/3.jpg", data);
+        Thread.sleep(5);
+        cache.getFromCache("https://example.com/1.jpg");
+
+        cache.setMaxBytes(25);
+        cache.evict();
+
+        assertTrue(cache.isCached("https://example.com/1.jpg"));
+        assertFalse(cache.isCached("https://example.com/2.jpg"));
+        assertTrue(cache.isCached("https://example.com/3.jpg"));
+        assertEquals(20L, cache.getTotalBytes());
+        assertFalse(new CacheManager(dir).isCached("https://example.com/2.jpg"));
+    }
+
+    @Test
+    public void testAccessTimesSurviveRestart() throws Exception {
+        Path dir = Files.createTempDirectory("shiori-cache");
+        byte[] data = new byte[10];
+
+        try (CacheManager cache = new CacheManager(dir)) {
+            cache.saveToCache("https://example.com/1.jpg", data);
+            Thread.sleep(5);
+            cache.saveToCache("https://example.com/2.jpg", data);
+            Thread.sleep(5);
+            cache.getFromCache("https://example.com/1.jpg");
+        }
+
+        // The read was appended to the index on close, so 1 is now the most recently used
+        try (CacheManager reopened = new CacheManager(dir)) {
+            reopened.setMaxBytes(15);
+            reopened.evict();
+            assertTrue(reopened.isCached("https://example.com/1.jpg"));
+            assertFalse(reopened.isCached("https://example.com/2.jpg"));
+        }
+    }
 }
@@ -0,0 +1,50 @@
+package api;
+
+import model.Chapter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChapterPagerTest {
+
+    private static ChapterPager.ChapterPage page(int total, int offset, int limit) {
+        List<Chapter> chapters = new ArrayList<>();
+        for (int i = offset; i < Math.min(total, offset + limit); i++) {
+            chapters.add(new Chapter("id-" + i, "", String.valueOf(i)));
+        }
+        return new ChapterPager.ChapterPage(total, chapters);
+    }
+
+    @Test
+    public void testDeliversPagesInOrder() throws Exception {
+        List<Chapter> received = new ArrayList<>();
+        ChapterPager.stream((offset, limit) -> {
+            // Make early pages finish last
+            Thread.sleep(Math.max(0, 50 - offset / 10));
+            return page(450, offset, limit);
+        }, received::addAll);
+
+        assertEquals(450, received.size());
+        for (int i = 0; i < received.size(); i++) {
+            assertEquals("id-" + i, received.get(i).id());
+        }
+    }
+
+    @Test
+    public void testStopsAtResultWindow() throws Exception {
+        List<Integer> offsets = new ArrayList<>();
+        List<Chapter> received = new ArrayList<>();
+        ChapterPager.stream((offset, limit) -> {
+            synchronized (offsets) {
+                offsets.add(offset + limit);
+            }
+            return page(12000, offset, limit);
+        }, received::addAll);
+
+        assertEquals(ChapterPager.MAX_RESULTS, received.size());
+        assertTrue(offsets.stream().allMatch(end -> end <= ChapterPager.MAX_RESULTS));
+    }
+}
@@ -0,0 +1,32 @@
+package api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChapterPagesTest {
+
+    @Test
+    public void testCacheKeyIgnoresNode() {
+        String first = "https://abc.mangadex.network:443/token/data/0123abcd/1-page.png";
+        String second = "https://uploads.mangadex.org/data/0123abcd/1-page.png";
+
+        assertEquals(ChapterPages.cacheKey(first), ChapterPages.cacheKey(second));
+        assertEquals("https://example.com/cover.png", ChapterPages.cacheKey("https://example.com/cover.png"));
+    }
+
+    @Test
+    public void testDataSaverCounterpart() {
+        ChapterPages pages = new ChapterPages("chapter", "https://node.example", "0123abcd",
+                List.of("1-a.png", "2-b.png"), List.of("1-a.jpg", "2-b.jpg"));
+
+        ChapterPages.PageRef page = ChapterPages.parseUrl(pages.urls(false).get(1));
+        ChapterPages.PageRef saver = pages.dataSaverOf(page);
+
+        assertEquals("https://node.example/data-saver/0123abcd/2-b.jpg", saver.url());
+        assertEquals(pages.urls(true).get(1), saver.url());
+        assertNull(pages.dataSaverOf(saver));
+    }
+}
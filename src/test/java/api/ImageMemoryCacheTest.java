@@ -0,0 +1,36 @@
+package api;
+
+import org.junit.jupiter.api.Test;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageMemoryCacheTest {
+
+    @Test
+    public void testEvictsLeastRecentlyUsedByPixelCount() {
+        ImageMemoryCache cache = new ImageMemoryCache(250);
+        BufferedImage first = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage second = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage third = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+
+        cache.put("first", first);
+        cache.put("second", second);
+        assertSame(first, cache.get("first"));
+
+        cache.put("third", third);
+        assertSame(first, cache.get("first"));
+        assertNull(cache.get("second"));
+        assertSame(third, cache.get("third"));
+        assertEquals(200L, cache.getTotalPixels());
+    }
+
+    @Test
+    public void testSkipsImagesLargerThanBudget() {
+        ImageMemoryCache cache = new ImageMemoryCache(50);
+        cache.put("big", new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB));
+
+        assertNull(cache.get("big"));
+        assertEquals(0L, cache.getTotalPixels());
+    }
+}
@@ -0,0 +1,129 @@
+package api;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PagePipelineTest {
+
+    @Test
+    public void testSubsamplesToTargetWidth() throws Exception {
+        PagePipeline pipeline = new PagePipeline(new CacheManager(Files.createTempDirectory("pages")),
+                new ImageMemoryCache(1000), 1);
+
+        // Without a target only the pixel cap applies
+        assertEquals(1, pipeline.subsampling(1000, 1500));
+
+        pipeline.setTarget(1000, 1.0);
+        assertEquals(1, pipeline.subsampling(900, 1300));
+        assertEquals(2, pipeline.subsampling(2000, 3000));
+
+        // Zooming in asks for more pixels again
+        pipeline.setTarget(1000, 2.0);
+        assertEquals(1, pipeline.subsampling(2000, 3000));
+    }
+
+    @Test
+    public void testTallStripsStayUnderPixelCap() throws Exception {
+        PagePipeline pipeline = new PagePipeline(new CacheManager(Files.createTempDirectory("pages")),
+                new ImageMemoryCache(1000), 1);
+        pipeline.setTarget(2000, 1.0);
+
+        int factor = pipeline.subsampling(2000, 30000);
+        assertTrue((long) (2000 / factor) * (30000 / factor) <= PagePipeline.MAX_DECODE_PIXELS);
+        assertEquals(2, factor);
+    }
+
+    @Test
+    public void testCappedStripsDecodeNoWiderWhenZoomed() throws Exception {
+        PagePipeline pipeline = new PagePipeline(new CacheManager(Files.createTempDirectory("pages")),
+                new ImageMemoryCache(1000), 1);
+        pipeline.setTarget(800, 1.0);
+        assertEquals(400, pipeline.decodedWidth(800, 25000));
+
+        // The pixel cap, not the zoom, limits the width, so zooming in must not ask for a reload
+        pipeline.setTarget(800, 2.0);
+        assertEquals(400, pipeline.decodedWidth(800, 25000));
+    }
+
+    @Test
+    public void testStreamedPageShowsPartialsAndCachesEveryByte() throws Exception {
+        byte[] png = interlacedPng(600, 600);
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/page.png", exchange -> {
+            exchange.sendResponseHeaders(200, png.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                // Stall halfway so the decoder has something to preview
+                int half = png.length / 2;
+                out.write(png, 0, half);
+                out.flush();
+                Thread.sleep(ProgressiveDecoder.PREVIEW_INTERVAL_MILLIS + 100);
+                out.write(png, half, png.length - half);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+
+        CacheManager cacheManager = new CacheManager(Files.createTempDirectory("pages"));
+        try {
+            PagePipeline pipeline = new PagePipeline(cacheManager, new ImageMemoryCache(10_000_000), 1);
+            String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/page.png";
+            AtomicInteger partials = new AtomicInteger();
+            AtomicReference<PagePipeline.Page> loaded = new AtomicReference<>();
+            pipeline.load(List.of(url), false, (index, page) -> loaded.set(page), new PagePipeline.PageProgress() {
+                @Override
+                public void partial(int index, BufferedImage preview) {
+                    partials.incrementAndGet();
+                }
+            }, () -> false);
+
+            assertTrue(partials.get() > 0);
+            assertEquals(600, loaded.get().width());
+            assertEquals(600, loaded.get().image().getHeight());
+            // The bytes the decoder read from are the ones that reach the disk cache
+            assertArrayEquals(png, cacheManager.getFromCache(url));
+        } finally {
+            cacheManager.close();
+            server.stop(0);
+        }
+    }
+
+    private static byte[] interlacedPng(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(1);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,50 @@
+package api;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProgressiveDecoderTest {
+
+    @Test
+    public void testReportsSizeBeforeImage() throws Exception {
+        BufferedImage source = new BufferedImage(1200, 300, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(source, "png", png);
+
+        List<int[]> sizes = new ArrayList<>();
+        ProgressiveDecoder.Result decoded = ProgressiveDecoder.decode(new ByteArrayInputStream(png.toByteArray()),
+                new ProgressiveDecoder.Listener() {
+                    @Override
+                    public void sized(int width, int height) {
+                        sizes.add(new int[] {width, height});
+                    }
+                });
+
+        assertEquals(1, sizes.size());
+        assertEquals(1200, sizes.get(0)[0]);
+        assertEquals(300, sizes.get(0)[1]);
+        assertEquals(1200, decoded.image().getWidth());
+    }
+
+    @Test
+    public void testPreviewIsScaledDown() {
+        BufferedImage preview = ProgressiveDecoder.preview(new BufferedImage(1600, 800, BufferedImage.TYPE_INT_RGB));
+        assertEquals(ProgressiveDecoder.PREVIEW_WIDTH, preview.getWidth());
+        assertEquals(200, preview.getHeight());
+    }
+
+    @Test
+    public void testUnknownFormatReturnsNull() throws Exception {
+        assertNull(ProgressiveDecoder.decode(new ByteArrayInputStream(new byte[] {1, 2, 3, 4}),
+                new ProgressiveDecoder.Listener() {
+                }));
+    }
+}
@@ -0,0 +1,97 @@
+package api;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpHeaders;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestSchedulerTest {
+
+    private static HttpHeaders headers(Map<String, String> values) {
+        Map<String, List<String>> map = new java.util.HashMap<>();
+        values.forEach((k, v) -> map.put(k, List.of(v)));
+        return HttpHeaders.of(map, (k, v) -> true);
+    }
+
+    @Test
+    public void testHigherPriorityWaitersGoFirst() throws Exception {
+        RequestScheduler.Bucket bucket = new RequestScheduler.Bucket(10);
+        for (int i = 0; i < 10; i++) {
+            bucket.acquire(RequestScheduler.Priority.STATS);
+        }
+
+        List<RequestScheduler.Priority> order = Collections.synchronizedList(new ArrayList<>());
+        Thread stats = Thread.ofVirtual().start(() -> acquire(bucket, RequestScheduler.Priority.STATS, order));
+        Thread.sleep(20);
+        Thread prefetch = Thread.ofVirtual().start(() -> acquire(bucket, RequestScheduler.Priority.PREFETCH, order));
+        Thread visible = Thread.ofVirtual().start(() -> acquire(bucket, RequestScheduler.Priority.VISIBLE_PAGE, order));
+        stats.join();
+        prefetch.join();
+        visible.join();
+
+        // The first waiter may already hold the head, everyone after it is sorted
+        assertEquals(3, order.size());
+        assertTrue(order.indexOf(RequestScheduler.Priority.VISIBLE_PAGE)
+                < order.indexOf(RequestScheduler.Priority.PREFETCH));
+    }
+
+    @Test
+    public void testPromotedLaneMovesUp() throws Exception {
+        RequestScheduler.Bucket bucket = new RequestScheduler.Bucket(10);
+        for (int i = 0; i < 10; i++) {
+            bucket.acquire(RequestScheduler.Priority.STATS);
+        }
+
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        RequestScheduler.Lane lane = new RequestScheduler.Lane(RequestScheduler.Priority.STATS);
+        Thread promoted = Thread.ofVirtual().start(() -> acquire(bucket, lane, "promoted", order));
+        Thread prefetch = Thread.ofVirtual().start(() -> acquire(bucket, new RequestScheduler.Lane(
+                RequestScheduler.Priority.PREFETCH), "prefetch", order));
+        Thread.sleep(20);
+        lane.promote(RequestScheduler.Priority.VISIBLE_PAGE);
+        promoted.join();
+        prefetch.join();
+
+        // Queued as a stats lookup, it is served as a visible page once promoted
+        assertEquals(List.of("promoted", "prefetch"), order);
+        assertEquals(RequestScheduler.Priority.VISIBLE_PAGE, lane.priority());
+    }
+
+    private static void acquire(RequestScheduler.Bucket bucket, RequestScheduler.Lane lane, String name,
+                                List<String> order) {
+        try {
+            bucket.acquire(lane);
+            order.add(name);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void acquire(RequestScheduler.Bucket bucket, RequestScheduler.Priority priority,
+                                List<RequestScheduler.Priority> order) {
+        try {
+            bucket.acquire(priority);
+            order.add(priority);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void testReadsRateLimitHeaders() {
+        assertEquals(3000, RequestScheduler.rateLimitPause(headers(Map.of("Retry-After", "3"))));
+
+        long reset = System.currentTimeMillis() / 1000 + 10;
+        long pause = RequestScheduler.rateLimitPause(headers(Map.of(
+                "X-RateLimit-Remaining", "0",
+                "X-RateLimit-Retry-After", String.valueOf(reset))));
+        assertTrue(pause > 8000 && pause <= 10000, "pause was " + pause);
+
+        assertEquals(0, RequestScheduler.rateLimitPause(headers(Map.of("X-RateLimit-Remaining", "12"))));
+    }
+}
@@ -0,0 +1,54 @@
+package api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    @Test
+    public void testConcurrentCallsShareOneResult() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> flight.run("key", () -> {
+                    calls.incrementAndGet();
+                    release.await();
+                    return "value";
+                })));
+            }
+            while (calls.get() == 0) {
+                Thread.sleep(5);
+            }
+            Thread.sleep(50);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("value", result.get());
+            }
+        }
+        assertEquals(1, calls.get());
+        assertEquals(0, flight.size());
+    }
+
+    @Test
+    public void testFailuresAreNotRemembered() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        assertThrows(IllegalStateException.class, () -> flight.run("key", () -> {
+            throw new IllegalStateException("boom");
+        }));
+        assertEquals("ok", flight.run("key", () -> "ok"));
+    }
+}
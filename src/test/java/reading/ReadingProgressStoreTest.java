@@ -0,0 +1,62 @@
+package reading;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReadingProgressStoreTest {
+
+    @Test
+    public void testPerMangaQueriesSurviveReopening() throws Exception {
+        Path file = Files.createTempDirectory("progress").resolve("progress.json");
+
+        ReadingProgressStore store = new ReadingProgressStore(file);
+        store.saveProgress("m1", "c1", 3);
+        Thread.sleep(2);
+        store.saveProgress("m1", "c2", 7);
+        store.saveProgress("m2", "c9", 1);
+
+        ReadingProgressStore reopened = new ReadingProgressStore(file);
+        assertEquals(2, reopened.getMangaProgress("m1").size());
+        assertEquals("c2", reopened.getLatestProgress("m1").chapterId());
+        assertEquals(7, reopened.getPageIndex("m1", "c2"));
+        assertTrue(reopened.getMangaProgress("m3").isEmpty());
+    }
+
+    @Test
+    public void testClearMangaProgressLeavesOtherMangas() throws Exception {
+        ReadingProgressStore store = new ReadingProgressStore(
+                Files.createTempDirectory("progress").resolve("progress.json"));
+        store.saveProgress("m1", "c1", 3);
+        store.saveProgress("m10", "c1", 4);
+
+        store.clearMangaProgress("m1");
+
+        assertFalse(store.hasProgress("m1", "c1"));
+        assertNull(store.getLatestProgress("m1"));
+        assertEquals(4, store.getPageIndex("m10", "c1"));
+    }
+
+    @Test
+    public void testLoadsExistingProgressFile() throws Exception {
+        Path file = Files.createTempDirectory("progress").resolve("progress.json");
+        Files.writeString(file, """
+                [ {
+                  "mangaId" : "m1",
+                  "chapterId" : "c1",
+                  "pageIndex" : 12,
+                  "lastReadAt" : 1700000000000,
+                  "legacyField" : true
+                } ]
+                """, StandardCharsets.UTF_8);
+
+        ReadingProgressStore store = new ReadingProgressStore(file);
+
+        assertEquals(12, store.getPageIndex("m1", "c1"));
+        assertEquals(1700000000000L, store.getLatestProgress("m1").lastReadAt());
+    }
+}
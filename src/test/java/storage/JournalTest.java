@@ -0,0 +1,101 @@
+package storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JournalTest {
+
+    public record Item(String id, int n) {
+    }
+
+    private static Journal<Item> open(Path file) {
+        return new Journal<>(file, Item.class, Item::id);
+    }
+
+    @Test
+    public void testChangesSurviveReopening() throws Exception {
+        Path file = Files.createTempDirectory("journal").resolve("items.json");
+
+        Journal<Item> journal = open(file);
+        journal.put(new Item("a", 1));
+        journal.put(new Item("b", 2));
+        journal.put(new Item("a", 3));
+        journal.remove("b");
+        journal.close();
+
+        Journal<Item> reopened = open(file);
+        assertEquals(1, reopened.size());
+        assertEquals(new Item("a", 3), reopened.get("a"));
+        assertNull(reopened.get("b"));
+    }
+
+    @Test
+    public void testCompactionFoldsJournalIntoSnapshot() throws Exception {
+        Path file = Files.createTempDirectory("journal").resolve("items.json");
+        Path journalFile = file.resolveSibling("items.json.journal");
+
+        Journal<Item> journal = open(file);
+        for (int i = 0; i < 10; i++) {
+            journal.put(new Item("k" + (i % 3), i));
+        }
+        journal.compact();
+
+        assertTrue(Files.exists(file));
+        assertFalse(Files.exists(journalFile));
+
+        // Changes after compaction go to a fresh journal on top of the snapshot
+        journal.put(new Item("k0", 42));
+        journal.close();
+
+        Journal<Item> reopened = open(file);
+        assertEquals(3, reopened.size());
+        assertEquals(new Item("k0", 42), reopened.get("k0"));
+        assertEquals(new Item("k2", 8), reopened.get("k2"));
+    }
+
+    @Test
+    public void testTornLastRecordIsSkipped() throws Exception {
+        Path file = Files.createTempDirectory("journal").resolve("items.json");
+
+        Journal<Item> journal = open(file);
+        journal.put(new Item("a", 1));
+        journal.close();
+        Files.writeString(file.resolveSibling("items.json.journal"), "{\"op\":\"put\",\"val",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        Journal<Item> reopened = open(file);
+        assertEquals(1, reopened.size());
+        assertEquals(new Item("a", 1), reopened.get("a"));
+
+        // A record appended after the torn line must not run into it
+        reopened.put(new Item("b", 2));
+        reopened.close();
+
+        Journal<Item> again = open(file);
+        assertEquals(2, again.size());
+        assertEquals(new Item("b", 2), again.get("b"));
+    }
+
+    @Test
+    public void testUnreadableSnapshotIsSetAside() throws Exception {
+        Path file = Files.createTempDirectory("journal").resolve("items.json");
+        String corrupt = "[{\"id\":\"a\",\"n\":1},{\"id\":";
+        Files.writeString(file, corrupt, StandardCharsets.UTF_8);
+
+        Journal<Item> journal = open(file);
+        journal.put(new Item("b", 2));
+        journal.compact();
+        journal.close();
+
+        // The partial records must not replace the original
+        Path aside = file.resolveSibling("items.json.corrupt");
+        assertEquals(corrupt, Files.readString(aside, StandardCharsets.UTF_8));
+        assertEquals(new Item("b", 2), open(file).get("b"));
+    }
+}